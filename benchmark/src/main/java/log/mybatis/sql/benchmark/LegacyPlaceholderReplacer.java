@@ -0,0 +1,66 @@
+package log.mybatis.sql.benchmark;
+
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 原来AbstractSqlPrinter.replacePlaceholder的实现, 在StringBuilder上原地replace/delete, 仅做对比
+ */
+public final class LegacyPlaceholderReplacer {
+
+    private LegacyPlaceholderReplacer() {
+    }
+
+    public static String replace(List<String> parameters, String sql) {
+        int parameterLen = parameters.stream().mapToInt(String::length).sum();
+        StringBuilder sqlBuilder = new StringBuilder(sql.length() + parameterLen - parameters.size());
+        sqlBuilder.append(sql);
+
+        int lastSqlPlaceholder = 0;
+        int paraInx = 0;
+
+        boolean singleQuoteMatch = true;
+        while (lastSqlPlaceholder < sqlBuilder.length()) {
+            char c = sqlBuilder.charAt(lastSqlPlaceholder);
+
+            if (c == '\'' && lastSqlPlaceholder != 0 && sqlBuilder.charAt(lastSqlPlaceholder - 1) != '\\') {
+                singleQuoteMatch = !singleQuoteMatch;
+            }
+            if (!singleQuoteMatch) {
+                lastSqlPlaceholder++;
+                continue;
+            }
+
+            if (c == '?') {
+                String value = parameters.get(paraInx++);
+                sqlBuilder.replace(lastSqlPlaceholder, lastSqlPlaceholder + 1, value);
+                lastSqlPlaceholder += value.length();
+                continue;
+            }
+
+            if (c == '\n' || c == '\r' || c == '\t') {
+                c = ' ';
+                sqlBuilder.setCharAt(lastSqlPlaceholder, c);
+            }
+            if (c == ' ') {
+                int start = ++lastSqlPlaceholder;
+                for (;lastSqlPlaceholder < sqlBuilder.length(); lastSqlPlaceholder++) {
+                    char guessStopChar = sqlBuilder.charAt(lastSqlPlaceholder);
+                    if (guessStopChar != ' ' && guessStopChar != '\n' && guessStopChar != '\r') {
+                        break;
+                    }
+                }
+                if (start != lastSqlPlaceholder) {
+                    sqlBuilder.delete(start, lastSqlPlaceholder);
+                    lastSqlPlaceholder = start;
+                }
+                continue;
+            }
+
+            lastSqlPlaceholder++;
+        }
+        return sqlBuilder.toString();
+    }
+
+}
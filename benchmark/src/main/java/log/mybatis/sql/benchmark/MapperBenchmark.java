@@ -0,0 +1,136 @@
+package log.mybatis.sql.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import log.mybatis.sql.DefaultSqlPrinter;
+import log.mybatis.sql.SqlPrintInterceptor;
+import log.mybatis.sql.json.JsonSqlPrinter;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 端到端开销, 内存H2上执行mapper
+ * none: 不装拦截器, off: 装拦截器但DefaultSqlPrinter的日志级别是WARN, on: 打印sql到target/benchmark-sql.log
+ * json: JsonSqlPrinter写到target/benchmark-sql.json
+ * 吞吐量和延迟分位数都会输出, 分配率加 -prof gc, 例:
+ * java -jar benchmark/target/benchmarks.jar MapperBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final int ROWS = 10000;
+
+    private static final int USERS = 500;
+
+    private static final Logger PRINTER_LOGGER = (Logger) LoggerFactory.getLogger(DefaultSqlPrinter.class);
+
+    @Param({"none", "off", "on", "json"})
+    private String interceptor;
+
+    private SqlSessionFactory sqlSessionFactory;
+
+    private SqlPrintInterceptor sqlPrintInterceptor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:benchmark_" + interceptor + ";DB_CLOSE_DELAY=-1");
+        Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+        // 不让一级缓存命中, 每次都真正执行
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.addMapper(OrderMapper.class);
+        if (!"none".equals(interceptor)) {
+            sqlPrintInterceptor = new SqlPrintInterceptor();
+            sqlPrintInterceptor.setSqlPrinter("json".equals(interceptor)
+                    ? new JsonSqlPrinter("target/benchmark-sql.json") : new DefaultSqlPrinter());
+            sqlPrintInterceptor.afterPropertiesSet();
+            configuration.addInterceptor(sqlPrintInterceptor);
+        }
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            session.getMapper(OrderMapper.class).createTable();
+        }
+        // 灌数据时不打印
+        PRINTER_LOGGER.setLevel(ch.qos.logback.classic.Level.WARN);
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            OrderMapper mapper = session.getMapper(OrderMapper.class);
+            for (int id = 0; id < ROWS; id++) {
+                mapper.insert(id, id % USERS, new BigDecimal("12.50"), StatementCorpus.Status.PAID, "order " + id, new Date());
+            }
+            session.commit();
+        }
+        PRINTER_LOGGER.setLevel("on".equals(interceptor) ? ch.qos.logback.classic.Level.INFO : ch.qos.logback.classic.Level.WARN);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (sqlPrintInterceptor != null) {
+            sqlPrintInterceptor.destroy();
+            if (sqlPrintInterceptor.getSqlPrinter() instanceof JsonSqlPrinter) {
+                ((JsonSqlPrinter) sqlPrintInterceptor.getSqlPrinter()).destroy();
+            }
+        }
+    }
+
+    /**
+     * 每个线程一个会话, 会话的打开和关闭不计入
+     */
+    @State(Scope.Thread)
+    public static class Session {
+
+        private SqlSession sqlSession;
+
+        private OrderMapper mapper;
+
+        @Setup(Level.Trial)
+        public void open(MapperBenchmark benchmark) {
+            sqlSession = benchmark.sqlSessionFactory.openSession(true);
+            mapper = sqlSession.getMapper(OrderMapper.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            sqlSession.close();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> get(Session session) {
+        return session.mapper.get(ThreadLocalRandom.current().nextInt(ROWS));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> listByUser(Session session) {
+        return session.mapper.listByUser(ThreadLocalRandom.current().nextInt(USERS));
+    }
+
+    @Benchmark
+    public int updateAmount(Session session) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return session.mapper.updateAmount(random.nextInt(ROWS), BigDecimal.valueOf(random.nextInt(100000), 2), "paid");
+    }
+
+}
@@ -0,0 +1,38 @@
+package log.mybatis.sql.benchmark;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 端到端基准测试用的mapper
+ */
+public interface OrderMapper {
+
+    @Update("CREATE TABLE IF NOT EXISTS t_order (id BIGINT PRIMARY KEY, user_id BIGINT, amount DECIMAL(12, 2),"
+            + " status VARCHAR(16), remark VARCHAR(255), created_at TIMESTAMP)")
+    int createTable();
+
+    @Insert("INSERT INTO t_order (id, user_id, amount, status, remark, created_at)"
+            + " VALUES (#{id}, #{userId}, #{amount}, #{status}, #{remark}, #{createdAt})")
+    int insert(@Param("id") long id, @Param("userId") long userId, @Param("amount") BigDecimal amount,
+               @Param("status") StatementCorpus.Status status, @Param("remark") String remark, @Param("createdAt") Date createdAt);
+
+    @Select("SELECT id, user_id, amount, status, remark, created_at FROM t_order WHERE id = #{id}")
+    Map<String, Object> get(@Param("id") long id);
+
+    @Select("SELECT id, user_id, amount, status, remark, created_at FROM t_order WHERE user_id = #{userId} ORDER BY id LIMIT 20")
+    List<Map<String, Object>> listByUser(@Param("userId") long userId);
+
+    @Update("UPDATE t_order SET amount = #{amount}, remark = #{remark} WHERE id = #{id}")
+    int updateAmount(@Param("id") long id, @Param("amount") BigDecimal amount, @Param("remark") String remark);
+
+}
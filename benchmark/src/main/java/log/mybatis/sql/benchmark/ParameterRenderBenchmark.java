@@ -0,0 +1,82 @@
+package log.mybatis.sql.benchmark;
+
+import log.mybatis.sql.PlaceholderReplacer;
+import log.mybatis.sql.SqlTemplate;
+import log.mybatis.sql.parameter.ParameterRendererRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 参数渲染(原parseParameter)和带类型参数的占位符替换(原replacePlaceholder)
+ * 加 -prof gc 看每次的分配
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParameterRenderBenchmark {
+
+    @Param({"point", "in50", "wideUpdate", "batch100"})
+    private String shape;
+
+    private Object[] parameterValues;
+
+    private SqlTemplate template;
+
+    private final ParameterRendererRegistry registry = new ParameterRendererRegistry();
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    @Setup
+    public void setup() {
+        StatementCorpus corpus = StatementCorpus.of(shape);
+        parameterValues = corpus.getParameterValues();
+        template = PlaceholderReplacer.compile(corpus.getSql());
+    }
+
+    /**
+     * 只渲染参数
+     */
+    @Benchmark
+    public int renderParameters() {
+        out.setLength(0);
+        for (Object value : parameterValues) {
+            registry.render(value, out);
+        }
+        return out.length();
+    }
+
+    /**
+     * 参数直接渲染进预编译模板, 打印sql时的完整路径
+     */
+    @Benchmark
+    public int renderSql() {
+        out.setLength(0);
+        template.render(parameterValues, registry, out);
+        return out.length();
+    }
+
+    /**
+     * 带折叠的渲染, IN列表和批量插入只保留几组
+     */
+    @Benchmark
+    public int renderSqlCollapsed() {
+        out.setLength(0);
+        template.render(parameterValues, registry, out, -1, true);
+        return out.length();
+    }
+
+    /**
+     * 每次重新编译模板, 模板缓存没命中时的开销
+     */
+    @Benchmark
+    public SqlTemplate compile() {
+        return PlaceholderReplacer.compile(template.getSql());
+    }
+
+}
@@ -0,0 +1,56 @@
+package log.mybatis.sql.benchmark;
+
+import log.mybatis.sql.PlaceholderReplacer;
+import log.mybatis.sql.SqlTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 占位符替换新旧实现对比, 1KB / 50KB / 1MB 的批量插入
+ * 1MB下旧实现单次要几秒, 迭代时间放宽一些
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceholderReplaceBenchmark {
+
+    @Param({"1024", "51200", "1048576"})
+    private int sqlSize;
+
+    private SqlCorpus corpus;
+
+    private SqlTemplate template;
+
+    @Setup
+    public void setup() {
+        corpus = SqlCorpus.batchInsert(sqlSize);
+        template = PlaceholderReplacer.compile(corpus.getSql());
+        String legacy = LegacyPlaceholderReplacer.replace(corpus.getParameters(), corpus.getSql());
+        String singlePass = PlaceholderReplacer.replace(corpus.getSql(), corpus.getParameters());
+        if (!legacy.equals(singlePass)) {
+            throw new IllegalStateException("legacy and single pass output differ");
+        }
+    }
+
+    @Benchmark
+    public String legacy() {
+        return LegacyPlaceholderReplacer.replace(corpus.getParameters(), corpus.getSql());
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return PlaceholderReplacer.replace(corpus.getSql(), corpus.getParameters());
+    }
+
+    @Benchmark
+    public String template() {
+        return template.render(corpus.getParameters());
+    }
+
+}
@@ -0,0 +1,63 @@
+package log.mybatis.sql.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 基准测试用的sql, 模拟mybatis foreach生成的批量插入
+ */
+public final class SqlCorpus {
+
+    private static final String INSERT_HEAD = "INSERT INTO t_order (id, user_id, amount, status, remark, created_at)\n    VALUES\n";
+
+    private static final String INSERT_ROW = "        (?, ?, ?, ?, ?, ?)";
+
+    private static final int INSERT_ROW_PARAMS = 6;
+
+    private final String sql;
+
+    private final List<String> parameters;
+
+    private SqlCorpus(String sql, List<String> parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    /**
+     * 生成长度约为size的批量插入sql和对应参数
+     */
+    public static SqlCorpus batchInsert(int size) {
+        StringBuilder sql = new StringBuilder(size + 64);
+        sql.append(INSERT_HEAD);
+        List<String> parameters = new ArrayList<>();
+        int row = 0;
+        while (sql.length() < size) {
+            if (row > 0) {
+                sql.append(",\n");
+            }
+            sql.append(INSERT_ROW);
+            parameters.add(String.valueOf(1000000L + row));
+            parameters.add(String.valueOf(row % 997));
+            parameters.add("12.50");
+            parameters.add("'PAID'");
+            parameters.add("'remark ''" + row + "'' from batch'");
+            parameters.add("'2020-01-06 12:00:00'");
+            row++;
+        }
+        if (parameters.size() != row * INSERT_ROW_PARAMS) {
+            throw new IllegalStateException("corpus parameters mismatch");
+        }
+        return new SqlCorpus(sql.toString(), parameters);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+}
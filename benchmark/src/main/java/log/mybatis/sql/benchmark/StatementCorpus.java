@@ -0,0 +1,109 @@
+package log.mybatis.sql.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 常见的sql形状和带类型的参数, 参数是TypeHandler处理前的java对象
+ */
+public final class StatementCorpus {
+
+    public enum Status {
+        CREATED, PAID, CLOSED
+    }
+
+    private final String sql;
+
+    private final Object[] parameterValues;
+
+    private StatementCorpus(String sql, Object[] parameterValues) {
+        this.sql = sql;
+        this.parameterValues = parameterValues;
+    }
+
+    /**
+     * @param shape point, in50, wideUpdate, batch100
+     */
+    public static StatementCorpus of(String shape) {
+        switch (shape) {
+            case "point":
+                return point();
+            case "in50":
+                return in(50);
+            case "wideUpdate":
+                return wideUpdate();
+            case "batch100":
+                return batchInsert(100);
+            default:
+                throw new IllegalArgumentException("unknown shape " + shape);
+        }
+    }
+
+    /**
+     * 按主键查询
+     */
+    public static StatementCorpus point() {
+        return new StatementCorpus("SELECT id, user_id, amount, status, remark, created_at\n    FROM t_order\n    WHERE id = ?",
+                new Object[]{1000042L});
+    }
+
+    /**
+     * foreach生成的IN列表
+     */
+    public static StatementCorpus in(int size) {
+        StringBuilder sql = new StringBuilder("SELECT id, user_id, amount, status FROM t_order WHERE status = ? AND user_id IN\n    (");
+        Object[] values = new Object[size + 1];
+        values[0] = Status.PAID;
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            values[i + 1] = 10000L + i * 7;
+        }
+        return new StatementCorpus(sql.append(")").toString(), values);
+    }
+
+    /**
+     * 多种类型的更新, 包含null, 需要转义的字符串和较长的备注
+     */
+    public static StatementCorpus wideUpdate() {
+        StringBuilder remark = new StringBuilder();
+        while (remark.length() < 300) {
+            remark.append("customer's note, ");
+        }
+        return new StatementCorpus("UPDATE t_order\n    SET amount = ?, status = ?, remark = ?, paid = ?, coupon_id = ?,\n"
+                + "        updated_at = ?, expired_at = ?, version = version + 1\n    WHERE id = ? AND version = ?",
+                new Object[]{new BigDecimal("1299.90"), Status.PAID, remark.toString(), Boolean.TRUE, null,
+                        new Date(1578283200000L), LocalDateTime.of(2020, 1, 6, 12, 0), 1000042L, 3});
+    }
+
+    /**
+     * foreach生成的批量插入
+     */
+    public static StatementCorpus batchInsert(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO t_order (id, user_id, amount, status, remark, created_at)\n    VALUES\n");
+        List<Object> values = new ArrayList<>(rows * 6);
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "" : ",\n").append("        (?, ?, ?, ?, ?, ?)");
+            values.add(1000000L + row);
+            values.add(row % 997);
+            values.add(new BigDecimal("12.50"));
+            values.add(Status.CREATED);
+            values.add("remark '" + row + "' from batch");
+            values.add(new Date(1578283200000L + row));
+        }
+        return new StatementCorpus(sql.toString(), values.toArray());
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Object[] getParameterValues() {
+        return parameterValues;
+    }
+
+}
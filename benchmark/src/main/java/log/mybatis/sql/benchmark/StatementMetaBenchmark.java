@@ -0,0 +1,70 @@
+package log.mybatis.sql.benchmark;
+
+import log.mybatis.sql.SqlLogGate;
+import log.mybatis.sql.SqlLogPolicy;
+import log.mybatis.sql.SqlStatistics;
+import log.mybatis.sql.StatementMeta;
+import log.mybatis.sql.StatementMetaIndex;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 每条sql都要走的打印判断(原needLogSql): 查statement元数据, 慢sql, 采样和限流
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementMetaBenchmark {
+
+    /**
+     * all: 全部打印, sampled: 10%采样, limited: 每秒1000行
+     */
+    @Param({"all", "sampled", "limited"})
+    private String policy;
+
+    private MappedStatement mappedStatement;
+
+    private StatementMetaIndex index;
+
+    private SqlLogGate gate;
+
+    @Setup
+    public void setup() {
+        Configuration configuration = new Configuration();
+        configuration.addMapper(OrderMapper.class);
+        mappedStatement = configuration.getMappedStatement(OrderMapper.class.getName() + ".get");
+        int maxLinesPerSecond = "limited".equals(policy) ? 1000 : -1;
+        SqlLogPolicy sqlLogPolicy = new SqlLogPolicy(true, 500, "sampled".equals(policy) ? 0.1 : 1.0, maxLinesPerSecond, -1, -1, true);
+        index = new StatementMetaIndex(sqlLogPolicy, new SqlStatistics());
+        index.build(configuration.getMappedStatements());
+        gate = new SqlLogGate(maxLinesPerSecond);
+    }
+
+    @Benchmark
+    public StatementMeta lookup() {
+        return index.get(mappedStatement);
+    }
+
+    @Benchmark
+    public SqlLogGate.Decision decide() {
+        return gate.decide(index.get(mappedStatement), 3);
+    }
+
+    /**
+     * 多线程下的令牌桶和计数竞争
+     */
+    @Benchmark
+    @Threads(4)
+    public SqlLogGate.Decision decideContended() {
+        return gate.decide(index.get(mappedStatement), 3);
+    }
+
+}
@@ -3,16 +3,29 @@ package log;
 import log.mybatis.sql.DefaultSqlPrinter;
 import log.mybatis.sql.SqlPrintInterceptor;
 import log.mybatis.sql.SqlPrinter;
-import org.springframework.beans.factory.annotation.Configurable;
+import log.mybatis.sql.metrics.JmxSqlMetrics;
+import log.mybatis.sql.metrics.MicrometerSqlMetrics;
+import log.mybatis.sql.metrics.SqlMetrics;
+import log.mybatis.sql.scope.SqlScopeHandlerInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * @author pengjie.nan
  * @date 2020/1/6
+ * 自动配置, 在META-INF/spring.factories里注册, 条件依赖@EnableSqlPrint注册的SqlPrintInterceptor, 手动引入时用@ImportAutoConfiguration
  */
-@Configurable
+@Configuration
 public class LogAutoConfig {
 
 
@@ -23,7 +36,58 @@ public class LogAutoConfig {
         return new DefaultSqlPrinter();
     }
 
+    /**
+     * 有micrometer时输出到MeterRegistry, 没有注册表的用全局的
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class MicrometerSqlMetricsConfig {
 
+        @Bean
+        @ConditionalOnBean(SqlPrintInterceptor.class)
+        @ConditionalOnMissingBean(SqlMetrics.class)
+        public SqlMetrics sqlMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            return new MicrometerSqlMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        }
+    }
+
+    /**
+     * 没有micrometer时注册MXBean
+     */
+    @Configuration
+    @ConditionalOnMissingClass("io.micrometer.core.instrument.MeterRegistry")
+    static class JmxSqlMetricsConfig {
+
+        @Bean
+        @ConditionalOnBean(SqlPrintInterceptor.class)
+        @ConditionalOnMissingBean(SqlMetrics.class)
+        public SqlMetrics sqlMetrics() {
+            return new JmxSqlMetrics();
+        }
+    }
+
+    /**
+     * 开启requestScope时按http请求汇总sql
+     */
+    @Configuration
+    @ConditionalOnClass(WebMvcConfigurer.class)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class SqlScopeWebConfig implements WebMvcConfigurer {
+
+        private final ObjectProvider<SqlPrintInterceptor> sqlPrintInterceptor;
+
+        SqlScopeWebConfig(ObjectProvider<SqlPrintInterceptor> sqlPrintInterceptor) {
+            this.sqlPrintInterceptor = sqlPrintInterceptor;
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            SqlPrintInterceptor interceptor = sqlPrintInterceptor.getIfAvailable();
+            if (interceptor != null && interceptor.isRequestScope()) {
+                registry.addInterceptor(new SqlScopeHandlerInterceptor(interceptor.getScopeRepeatThreshold()));
+            }
+        }
+    }
 
 
 }
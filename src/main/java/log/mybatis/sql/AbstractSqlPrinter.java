@@ -1,7 +1,7 @@
 package log.mybatis.sql;
 
-import com.aden.common.util.DateUtil;
-import com.google.common.collect.Maps;
+import log.mybatis.sql.parameter.ParameterRenderer;
+import log.mybatis.sql.parameter.ParameterRendererRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
@@ -10,14 +10,12 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.plugin.Invocation;
 import org.apache.ibatis.reflection.MetaObject;
-import org.apache.ibatis.reflection.SystemMetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 
-import java.text.SimpleDateFormat;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author pengjie.nan
@@ -28,29 +26,63 @@ public abstract class AbstractSqlPrinter implements SqlPrinter {
 
 
     /**
-     * key : statement id, value 是否打印
+     * 预编译的sql模板
      */
-    private final Map<String, Boolean> mappedStatementPrintSqlMap = Maps.newConcurrentMap();
+    private volatile SqlTemplateCache templateCache = new SqlTemplateCache(SqlTemplateCache.DEFAULT_MAXIMUM_SIZE);
+
+    /**
+     * 慢sql, 采样和限流判断
+     */
+    private volatile SqlLogGate logGate = SqlLogGate.UNLIMITED;
+
+    /**
+     * 参数渲染
+     */
+    private volatile ParameterRendererRegistry parameterRendererRegistry = new ParameterRendererRegistry();
 
     /**
      * 打印sql
      */
     @Override
-    public void print(Invocation invocation, long executionTime, Object result, boolean defaultPrint) throws Exception {
-        StatementHandler stmtHandler = (StatementHandler) invocation.getTarget();
-        MetaObject metaStmtHandler = SystemMetaObject.forObject(stmtHandler);
-        MappedStatement mappedStatement = (MappedStatement) metaStmtHandler.getValue("delegate.mappedStatement");
-        // 获取方法上注解
-        String fullMapperMethod = mappedStatement.getId();
-
-        // 没有注解, 默认不打sql, 直接返回
-        // 有注解, 指定不打印, 直接返回
-        if (mappedStatementPrintSqlMap.get(fullMapperMethod) == null) {
-            boolean logSql = needLogSql(fullMapperMethod, defaultPrint);
-            mappedStatementPrintSqlMap.put(fullMapperMethod, logSql);
+    public void print(Invocation invocation, StatementMeta statementMeta, long executionTime, Object result) throws Exception {
+        print(invocation, statementMeta, SqlPhases.ofTotal(TimeUnit.MILLISECONDS.toNanos(executionTime)), result);
+    }
+
+    /**
+     * 打印sql, 带各阶段耗时
+     */
+    @Override
+    public void print(Invocation invocation, StatementMeta statementMeta, SqlPhases phases, Object result) throws Exception {
+        SqlEvent event = capture(invocation, statementMeta, phases, result);
+        if (event != null) {
+            render(event);
+        }
+    }
+
+    /**
+     * 在调用线程上采集快照, 只取引用和参数值, 不做字符串拼接
+     * @return 被采样或限流丢掉时返回null
+     */
+    public SqlEvent capture(Invocation invocation, StatementMeta statementMeta, long executionTime, Object result) throws Exception {
+        return capture(invocation, statementMeta, SqlPhases.ofTotal(TimeUnit.MILLISECONDS.toNanos(executionTime)), result);
+    }
+
+    /**
+     * 在调用线程上采集快照, 带各阶段耗时
+     * @return 被采样或限流丢掉时返回null
+     */
+    public SqlEvent capture(Invocation invocation, StatementMeta statementMeta, SqlPhases phases, Object result) throws Exception {
+        long executionTime = phases.getExecutionTime();
+        // 先判断, 丢掉的行什么都不做
+        SqlLogGate.Decision decision = logGate.decide(statementMeta, executionTime);
+        if (decision == SqlLogGate.Decision.SKIP) {
+            return null;
         }
         int total = 0;
-        if (result instanceof Collection) {
+        if (phases.isStreamed()) {
+            // Cursor和自定义ResultHandler的返回值不代表行数
+            total = (int) Math.min(Integer.MAX_VALUE, phases.getRows());
+        } else if (result instanceof Collection) {
             total = ((Collection) result).size();
         } else if (result instanceof Map) {
             total = ((Map) result).size();
@@ -60,19 +92,109 @@ public abstract class AbstractSqlPrinter implements SqlPrinter {
             total = result == null ? 0 : 1;
         }
 
-        // 方法是否要打印sql
-        if (!mappedStatementPrintSqlMap.get(fullMapperMethod)) {
-            notLogSql(fullMapperMethod, total, executionTime);
-            return;
+        // 方法是否要打印sql, 慢sql总是打印
+        if (decision == SqlLogGate.Decision.SUMMARY) {
+            return newEvent(statementMeta, total, executionTime, false, null, null, phases);
         }
 
+        StatementHandler stmtHandler = (StatementHandler) invocation.getTarget();
+        return newEvent(statementMeta, total, executionTime, true, stmtHandler.getBoundSql().getSql(),
+                captureParameterValues(stmtHandler), phases);
+    }
+
+    /**
+     * 生成快照, 在调用线程上执行, 需要线程名或MDC之类调用线程上下文的打印器覆盖这个方法
+     */
+    protected SqlEvent newEvent(StatementMeta statementMeta, int total, long executionTime, boolean print, String sql,
+                                Object[] parameterValues, SqlPhases phases) {
+        return new SqlEvent(statementMeta, total, executionTime, print, sql, parameterValues, phases);
+    }
+
+    /**
+     * 解析当前语句?对应的参数值, 可变的值复制一份, 之后渲染时不受业务代码修改的影响
+     */
+    public Object[] captureParameterValues(StatementHandler stmtHandler) {
         // 获取参数类型
-        BoundSql boundSql = (BoundSql) metaStmtHandler.getValue("delegate.boundSql");
+        MappedStatement mappedStatement = StatementHandlers.getMappedStatement(stmtHandler);
+        BoundSql boundSql = stmtHandler.getBoundSql();
         List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
-        // 解析?对应的参数
-        List<String> parameters = parseParameter(metaStmtHandler, mappedStatement, boundSql, parameterMappings);
-        String sql = replacePlaceholder(parameters, boundSql.getSql());
-        logSql(fullMapperMethod, total, executionTime, sql);
+        // 解析?对应的参数值
+        Object[] values = resolveParameterValues(mappedStatement, boundSql, parameterMappings);
+        ParameterRendererRegistry registry = parameterRendererRegistry;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = registry.freeze(values[i]);
+        }
+        return values;
+    }
+
+    /**
+     * 打印批量汇总, 样例sql同样延迟渲染
+     */
+    @Override
+    public void printBatch(SqlBatchEvent event) {
+        SqlLogGate.Decision decision = logGate.decide(event.getStatementMeta(), event.getExecutionTime());
+        if (decision == SqlLogGate.Decision.SKIP) {
+            return;
+        }
+        List<CharSequence> samples = new ArrayList<>(event.getSampleParameterValues().size());
+        if (decision == SqlLogGate.Decision.SQL) {
+            for (Object[] parameterValues : event.getSampleParameterValues()) {
+                SqlEvent row = new SqlEvent(event.getStatementMeta(), 1, event.getExecutionTime(), true, event.getSql(),
+                        parameterValues, SqlPhases.ofTotal(event.getTotalNanos()));
+                samples.add(new LazySql(() -> renderSql(row)));
+            }
+        }
+        logBatch(event, samples);
+    }
+
+    /**
+     * 打印批量汇总, 默认复用logSql/notLogSql, total是影响行数
+     * @param event 批量汇总
+     * @param samples 样例sql, 不打印sql时为空
+     */
+    protected void logBatch(SqlBatchEvent event, List<CharSequence> samples) {
+        int total = (int) Math.min(Integer.MAX_VALUE, event.getUpdateCount());
+        if (samples.isEmpty()) {
+            notLogSql(event.getFullMapperMethod(), total, event.getExecutionTime());
+            return;
+        }
+        logSql(event.getFullMapperMethod(), total, event.getExecutionTime(), new LazySql(() -> String.join("; ", samples)));
+    }
+
+    /**
+     * 把快照渲染成sql并打印, 异步模式下在后台线程执行
+     */
+    public void render(SqlEvent event) {
+        logSql(event, event.isPrint() ? new LazySql(() -> renderSql(event)) : null);
+    }
+
+    /**
+     * 打印一次执行, 默认调用logSql/notLogSql, 需要阶段耗时的打印器覆盖这个方法
+     * @param event 快照, 包含各阶段耗时
+     * @param sql 延迟渲染的sql, 不打印sql时为null
+     */
+    protected void logSql(SqlEvent event, CharSequence sql) {
+        if (sql == null) {
+            notLogSql(event.getFullMapperMethod(), event.getTotal(), event.getExecutionTime());
+            return;
+        }
+        logSql(event.getFullMapperMethod(), event.getTotal(), event.getExecutionTime(), sql);
+    }
+
+    /**
+     * 解析参数并替换占位符, 按statement的长度上限截断, 折叠重复的VALUES和IN列表
+     */
+    protected String renderSql(SqlEvent event) {
+        StatementMeta statementMeta = event.getStatementMeta();
+        SqlTemplate template = templateCache.get(statementMeta.getId(), event.getSql());
+        StringBuilder out = SqlBuffers.acquire();
+        try {
+            template.render(event.getParameterValues(), parameterRendererRegistry, out,
+                    statementMeta.getMaxSqlLength(), statementMeta.isCollapseRepeated());
+            return out.toString();
+        } finally {
+            SqlBuffers.release(out);
+        }
     }
 
     /**
@@ -88,164 +210,112 @@ public abstract class AbstractSqlPrinter implements SqlPrinter {
      * @param fullMapperMethod mapper全限定名
      * @param total 返回总数
      * @param executionTime 执行时间
-     * @param sql sql
+     * @param sql 延迟渲染的sql, 用到时才会解析参数
      */
-    public abstract void logSql(String fullMapperMethod, int total, long executionTime, String sql);
+    public abstract void logSql(String fullMapperMethod, int total, long executionTime, CharSequence sql);
 
 
+    /**
+     * 把?替换成参数, 并压缩空白
+     */
     protected String replacePlaceholder(List<String> parameters, String sql) {
-        int parameterLen = parameters.stream().mapToInt(String::length).sum();
-        StringBuilder sqlBuilder = new StringBuilder(sql.length() + parameterLen - parameters.size());
-        if (log.isTraceEnabled()) {
-            log.trace("init sqlBuilder.capacity() is {}", sqlBuilder.capacity());
-        }
-        sqlBuilder.append(sql);
+        return PlaceholderReplacer.replace(sql, parameters);
+    }
 
-        int lastSqlPlaceholder = 0;
-        // 第几个参数
-        int paraInx = 0;
+    /**
+     * 用预编译的模板渲染sql, 同一个statement同一条sql只扫描一次
+     */
+    protected String replacePlaceholder(String fullMapperMethod, List<String> parameters, String sql) {
+        return templateCache.get(fullMapperMethod, sql).render(parameters);
+    }
 
-        boolean singleQuoteMatch = true;
-        while (lastSqlPlaceholder < sqlBuilder.length()) {
-            char c = sqlBuilder.charAt(lastSqlPlaceholder);
+    public SqlLogGate getLogGate() {
+        return logGate;
+    }
 
-            // 当前位是' 且前一位不是\
-            if (c == '\'' && lastSqlPlaceholder != 0 && sqlBuilder.charAt(lastSqlPlaceholder - 1) != '\\') {
-                singleQuoteMatch = !singleQuoteMatch;
-            }
-            // 说明sql自身的字符串, 不需要替换
-            if (!singleQuoteMatch) {
-                lastSqlPlaceholder++;
-                continue;
-            }
+    public void setLogGate(SqlLogGate logGate) {
+        this.logGate = logGate;
+    }
 
-            if (c == '?') {
-                String value = parameters.get(paraInx++);
-                sqlBuilder.replace(lastSqlPlaceholder, lastSqlPlaceholder + 1, value);
-                lastSqlPlaceholder += value.length();
-                continue;
-            }
+    public SqlTemplateCache getTemplateCache() {
+        return templateCache;
+    }
+
+    /**
+     * 设置模板缓存条数, 会丢掉已有缓存
+     */
+    public void setTemplateCacheSize(int templateCacheSize) {
+        this.templateCache = new SqlTemplateCache(templateCacheSize);
+    }
 
-            // 去除回车空格 制表符
-            if (c == '\n' || c == '\r' || c == '\t') {
-                c = ' ';
-                sqlBuilder.setCharAt(lastSqlPlaceholder, c);
-            }
-            // 如果碰到空格了, 匹配直到下一个非空格, 非回车
-            if (c == ' ') {
-                // 留一个空格
-                int start = ++lastSqlPlaceholder;
-                for (;lastSqlPlaceholder < sqlBuilder.length(); lastSqlPlaceholder++) {
-                    char guessStopChar = sqlBuilder.charAt(lastSqlPlaceholder);
-                    if (guessStopChar != ' ' && guessStopChar != '\n' && guessStopChar != '\r') {
-                        break;
-                    }
-                }
-                if (start != lastSqlPlaceholder) {
-                    sqlBuilder.delete(start, lastSqlPlaceholder);
-                    // 删掉之后回退下标
-                    lastSqlPlaceholder = start;
-                }
-                continue;
-            }
 
-            // 正常字符
-            lastSqlPlaceholder++;
+    /**
+     * 解析?对应的参数值
+     */
+    protected Object[] resolveParameterValues(MappedStatement mappedStatement, BoundSql boundSql, List<ParameterMapping> parameterMappings) {
+        if (parameterMappings == null) {
+            return new Object[0];
         }
-        if (log.isTraceEnabled()) {
-            log.trace("after replace sqlBuilder.capacity() is {}", sqlBuilder.capacity());
+        List<Object> values = new ArrayList<>(parameterMappings.size());
+        Object parameterObject = boundSql.getParameterObject();
+        Configuration configuration = mappedStatement.getConfiguration();
+        MetaObject metaObject = parameterObject == null ? null : configuration.newMetaObject(parameterObject);
+        TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            if (parameterMapping.getMode() != ParameterMode.OUT) {
+                //  参数值
+                Object value;
+                String propertyName = parameterMapping.getProperty();
+                //  获取参数名称
+                if (boundSql.hasAdditionalParameter(propertyName)) {
+                    // 获取参数值
+                    value = boundSql.getAdditionalParameter(propertyName);
+                } else if (parameterObject == null) {
+                    value = null;
+                } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+                    // 如果是单个值则直接赋值
+                    value = parameterObject;
+                } else {
+                    value = metaObject == null ? null : metaObject.getValue(propertyName);
+                }
+                values.add(value);
+            }
         }
-        return sqlBuilder.toString();
+        return values.toArray();
     }
 
-
     /**
      * 解析参数
      */
-    protected List<String> parseParameter(MetaObject metaStmtHandler, MappedStatement mappedStatement, BoundSql boundSql, List<ParameterMapping> parameterMappings) {
-        List<String> parameters = new ArrayList<>();
-        if (parameterMappings != null) {
-            Object parameterObject = metaStmtHandler.getValue("delegate.boundSql.parameterObject");
-            Configuration configuration = mappedStatement.getConfiguration();
-            MetaObject metaObject = parameterObject == null ? null : configuration.newMetaObject(parameterObject);
-            TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
-            for (ParameterMapping parameterMapping : parameterMappings) {
-                if (parameterMapping.getMode() != ParameterMode.OUT) {
-                    //  参数值
-                    Object value;
-                    String propertyName = parameterMapping.getProperty();
-                    //  获取参数名称
-                    if (boundSql.hasAdditionalParameter(propertyName)) {
-                        // 获取参数值
-                        value = boundSql.getAdditionalParameter(propertyName);
-                    } else if (parameterObject == null) {
-                        value = null;
-                    } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
-                        // 如果是单个值则直接赋值
-                        value = parameterObject;
-                    } else {
-                        value = metaObject == null ? null : metaObject.getValue(propertyName);
-                    }
-
-                    if (value instanceof Number) {
-                        parameters.add(String.valueOf(value));
-                    } else if(value == null) {
-                        parameters.add("null");
-                    } else {
-                        StringBuilder builder = new StringBuilder();
-                        builder.append("'");
-                        if (value instanceof Date) {
-                            builder.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format((Date) value));
-                        } else if (value instanceof String) {
-                            builder.append(value);
-                        } else if (value instanceof LocalDateTime) {
-                            builder.append(DateUtil.format(((LocalDateTime) value)));
-                        } else if (value instanceof LocalDate) {
-                            builder.append(DateUtil.format(((LocalDate) value)));
-                        } else if (value instanceof Boolean) {
-                            builder.append(value);
-                        } else if(log.isDebugEnabled()) {
-                            log.debug(value.getClass() + " sql打印类型不支持");
-                        }
-                        builder.append("'");
-                        parameters.add(builder.toString());
-                    }
-                }
-            }
+    protected List<String> parseParameter(Object[] parameterValues) {
+        List<String> parameters = new ArrayList<>(parameterValues.length);
+        for (Object value : parameterValues) {
+            parameters.add(parameterRendererRegistry.render(value));
         }
         return parameters;
     }
 
     /**
-     * 获取方法或者类上的sqlLog注解, 判断是否打sql
+     * 注册自定义参数渲染器, spring容器里的ParameterRenderer会自动注入
      */
-    protected boolean needLogSql(String fullMapperMethod, boolean defaultPrint) throws ClassNotFoundException {
-        Class<?> mapperClass = getMapperClass(fullMapperMethod);
-        // 目标方法
-        String targetMethodName = getMapperMethodName(fullMapperMethod);
-        // 拿不到参数类型列表, 这里循环下, 正好mybatis不能重载
-        return ! Arrays.stream(mapperClass.getMethods())
-                .filter(method -> method.getName().equals(targetMethodName))
-                .findFirst()
-                .map(method -> {
-                    // 获取方法上注解
-                    SqlLog sqlLog = method.getAnnotation(SqlLog.class);
-                    if (sqlLog == null) {
-                        sqlLog = mapperClass.getAnnotation(SqlLog.class);
-                    }
-                    return (sqlLog == null && !defaultPrint) || (sqlLog != null && !sqlLog.print());
-                }).orElse(false);
+    @Autowired(required = false)
+    public void setParameterRenderers(List<ParameterRenderer<?>> parameterRenderers) {
+        this.parameterRendererRegistry = new ParameterRendererRegistry(parameterRenderers, parameterRendererRegistry.getDefaultMaxLength());
     }
 
-    protected String getMapperMethodName(String fullMapperMethod) {
-        return fullMapperMethod.substring(fullMapperMethod.lastIndexOf(".") + 1);
+    /**
+     * 参数全局长度上限, 渲染器自己没配置时使用
+     */
+    public void setParameterMaxLength(int parameterMaxLength) {
+        this.parameterRendererRegistry = new ParameterRendererRegistry(parameterRendererRegistry.getCustomRenderers(), parameterMaxLength);
     }
 
-    protected Class<?> getMapperClass(String fullMapperMethod) throws ClassNotFoundException {
-        String mapperClassName = fullMapperMethod.substring(0, fullMapperMethod.lastIndexOf("."));
-        return Class.forName(mapperClassName);
+    public ParameterRendererRegistry getParameterRendererRegistry() {
+        return parameterRendererRegistry;
     }
 
-
+    protected String getMapperMethodName(String fullMapperMethod) {
+        return fullMapperMethod.substring(fullMapperMethod.lastIndexOf(".") + 1);
+    }
 
 }
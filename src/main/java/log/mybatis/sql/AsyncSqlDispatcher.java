@@ -0,0 +1,194 @@
+package log.mybatis.sql;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 异步sql打印, 调用线程只把快照放进有界无锁队列, 后台线程负责渲染和打日志
+ */
+@Slf4j
+public class AsyncSqlDispatcher {
+
+    /**
+     * 队列空时后台线程的最长等待时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * BLOCK策略下调用线程每次等待时间
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AbstractSqlPrinter sqlPrinter;
+
+    private final int capacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * SAMPLE策略超过高水位后每sampleRate条保留一条
+     */
+    private final int sampleRate;
+
+    private final int highWaterMark;
+
+    private final Queue<SqlEvent> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * ConcurrentLinkedQueue.size()是O(n)的, 自己计数做容量控制
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder sampledOut = new LongAdder();
+
+    private final LongAdder blocked = new LongAdder();
+
+    private final LongAdder processed = new LongAdder();
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private volatile boolean workerParked;
+
+    public AsyncSqlDispatcher(AbstractSqlPrinter sqlPrinter, int capacity, OverflowPolicy overflowPolicy, int sampleRate) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("asyncQueueSize must be positive, but was " + capacity);
+        }
+        this.sqlPrinter = sqlPrinter;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy == null ? OverflowPolicy.DROP : overflowPolicy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.highWaterMark = Math.max(1, capacity / 2);
+        this.worker = new Thread(this::drainLoop, "sql-print-async");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 提交快照, 按溢出策略处理
+     * @param event sql快照
+     * @return 是否进入队列
+     */
+    public boolean offer(SqlEvent event) {
+        if (event == null) {
+            return false;
+        }
+        if (overflowPolicy == OverflowPolicy.SAMPLE && size.get() >= highWaterMark
+                && sampleCounter.getAndIncrement() % sampleRate != 0) {
+            sampledOut.increment();
+            return false;
+        }
+        while (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            // 后台线程已经停了, 等下去不会有空位
+            if (overflowPolicy != OverflowPolicy.BLOCK || !running || !worker.isAlive()) {
+                dropped.increment();
+                return false;
+            }
+            blocked.increment();
+            wakeUpWorker();
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+        }
+        queue.offer(event);
+        wakeUpWorker();
+        return true;
+    }
+
+    /**
+     * 停止后台线程, 队列中剩余的快照会打印完
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (size.get() > 0) {
+            log.warn("sql print async queue shutdown with {} events left", size.get());
+        }
+    }
+
+    private void wakeUpWorker() {
+        if (workerParked) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * 只有一个后台线程, 渲染的Error也要吞掉; 万一还是退出了, 置为停止让BLOCK策略不再等待
+     */
+    private void drainLoop() {
+        try {
+            drain();
+        } finally {
+            running = false;
+        }
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            SqlEvent event = queue.poll();
+            if (event == null) {
+                workerParked = true;
+                // 置位后再检查一次, 避免错过唤醒
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                workerParked = false;
+                continue;
+            }
+            size.decrementAndGet();
+            try {
+                sqlPrinter.render(event);
+            } catch (Throwable e) {
+                log.error("打印sql异常", e);
+            }
+            processed.increment();
+        }
+    }
+
+    public int getQueueSize() {
+        return size.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public long getProcessedCount() {
+        return processed.sum();
+    }
+
+}
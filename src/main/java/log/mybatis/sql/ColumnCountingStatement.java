@@ -0,0 +1,60 @@
+package log.mybatis.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 结果映射时包装Statement, mybatis自己调用getResultSet拿到第一个结果集时记下列数
+ * 不能在映射前自己调getResultSet, 有的驱动每个结果只允许取一次
+ * 和mybatis的StatementLogger一样用jdk代理
+ */
+@Slf4j
+final class ColumnCountingStatement implements InvocationHandler {
+
+    private final Statement delegate;
+
+    private final PhaseTracker.Frame frame;
+
+    private ColumnCountingStatement(Statement delegate, PhaseTracker.Frame frame) {
+        this.delegate = delegate;
+        this.frame = frame;
+    }
+
+    static Statement wrap(Statement statement, PhaseTracker.Frame frame) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                new ColumnCountingStatement(statement, frame));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Object result;
+        try {
+            result = method.invoke(delegate, args);
+        } catch (Throwable t) {
+            throw ExceptionUtil.unwrapThrowable(t);
+        }
+        if (result instanceof ResultSet && frame.columnCount == SqlPhases.UNKNOWN && "getResultSet".equals(method.getName())) {
+            // mybatis随后创建ResultSetWrapper时也会取元数据, 驱动一般缓存了
+            try {
+                frame.columnCount = ((ResultSet) result).getMetaData().getColumnCount();
+            } catch (SQLException | RuntimeException e) {
+                log.debug("获取列数失败", e);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,100 @@
+package log.mybatis.sql;
+
+import org.apache.ibatis.cursor.Cursor;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 包装Cursor, 遍历时数行数, 关闭或者读完时回调一次
+ * DefaultCursor读完会自己关闭, 不经过这里的close, 所以hasNext返回false时也算结束
+ */
+final class CountingCursor<T> implements Cursor<T> {
+
+    /**
+     * 结束回调
+     */
+    interface Listener {
+
+        /**
+         * @param rows 读到的行数
+         * @param firstRowNanoTime 第一行的System.nanoTime, 没有行时为0
+         * @param endNanoTime 结束时的System.nanoTime
+         */
+        void completed(long rows, long firstRowNanoTime, long endNanoTime);
+    }
+
+    private final Cursor<T> delegate;
+
+    private final Listener listener;
+
+    private long rows;
+
+    private long firstRowNanoTime;
+
+    private boolean completed;
+
+    CountingCursor(Cursor<T> delegate, Listener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public boolean isConsumed() {
+        return delegate.isConsumed();
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return delegate.getCurrentIndex();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> iterator = delegate.iterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = iterator.hasNext();
+                if (!hasNext) {
+                    complete();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public T next() {
+                T next = iterator.next();
+                if (rows++ == 0) {
+                    firstRowNanoTime = System.nanoTime();
+                }
+                return next;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            delegate.close();
+        } finally {
+            complete();
+        }
+    }
+
+    private void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        listener.completed(rows, firstRowNanoTime, System.nanoTime());
+    }
+
+}
@@ -0,0 +1,44 @@
+package log.mybatis.sql;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 包装自定义ResultHandler, 数行数并记下第一行的时间, 每行不分配对象
+ * 自定义ResultHandler的查询返回的是空列表, 不包装拿不到真实行数
+ */
+final class CountingResultHandler implements ResultHandler<Object> {
+
+    private final ResultHandler<Object> delegate;
+
+    private long rows;
+
+    /**
+     * 第一行的System.nanoTime, 没有行时为0
+     */
+    private long firstRowNanoTime;
+
+    @SuppressWarnings("unchecked")
+    CountingResultHandler(ResultHandler<?> delegate) {
+        this.delegate = (ResultHandler<Object>) delegate;
+    }
+
+    @Override
+    public void handleResult(ResultContext<?> resultContext) {
+        if (rows++ == 0) {
+            firstRowNanoTime = System.nanoTime();
+        }
+        delegate.handleResult(resultContext);
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    long getFirstRowNanoTime() {
+        return firstRowNanoTime;
+    }
+
+}
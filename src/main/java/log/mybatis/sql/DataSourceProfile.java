@@ -0,0 +1,81 @@
+package log.mybatis.sql;
+
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 一个SqlSessionFactory(数据源)的配置和统计, 不可变, 修改策略时整体替换
+ * 各数据源的元数据索引和统计互相独立, 不共享map
+ */
+public final class DataSourceProfile {
+
+    /**
+     * SqlSessionFactory的bean名, 不是spring bean时是Environment的id
+     */
+    private final String name;
+
+    /**
+     * 数据源级别的策略, 在全局策略上覆盖
+     */
+    private final SqlLogOverride policyOverride;
+
+    private final SqlStatistics sqlStatistics;
+
+    private final StatementMetaIndex statementMetaIndex;
+
+    /**
+     * 异常翻译, 按数据源的错误码, 可能为null
+     */
+    private final PersistenceExceptionTranslator exceptionTranslator;
+
+    DataSourceProfile(String name, SqlLogOverride policyOverride, SqlStatistics sqlStatistics,
+                      StatementMetaIndex statementMetaIndex, PersistenceExceptionTranslator exceptionTranslator) {
+        this.name = name;
+        this.policyOverride = policyOverride;
+        this.sqlStatistics = sqlStatistics;
+        this.statementMetaIndex = statementMetaIndex;
+        this.exceptionTranslator = exceptionTranslator;
+    }
+
+    /**
+     * 按新的全局策略, 数据源策略和覆盖重新生成
+     */
+    DataSourceProfile reconfigure(SqlLogPolicy policy, SqlLogOverride policyOverride, SqlLogOverrides overrides) {
+        return new DataSourceProfile(name, policyOverride, sqlStatistics,
+                statementMetaIndex.reconfigure(policy.with(policyOverride), overrides), exceptionTranslator);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SqlLogOverride getPolicyOverride() {
+        return policyOverride;
+    }
+
+    /**
+     * 生效的策略
+     */
+    public SqlLogPolicy getPolicy() {
+        return statementMetaIndex.getPolicy();
+    }
+
+    public SqlStatistics getSqlStatistics() {
+        return sqlStatistics;
+    }
+
+    public StatementMetaIndex getStatementMetaIndex() {
+        return statementMetaIndex;
+    }
+
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return exceptionTranslator;
+    }
+
+    @Override
+    public String toString() {
+        return "DataSourceProfile{name='" + name + "', policy=" + getPolicy() + '}';
+    }
+
+}
@@ -2,6 +2,9 @@ package log.mybatis.sql;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.List;
+import java.util.regex.Pattern;
+
 /**
  * @author pengjie.nan
  * @date 2020/1/6
@@ -9,13 +12,62 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class DefaultSqlPrinter extends AbstractSqlPrinter {
 
+    private static final Pattern NEW_LINE = Pattern.compile("\\s*[\\r\\n]\\s*");
+
+    @Override
+    public boolean isEnabled(StatementMeta statementMeta) {
+        return log.isInfoEnabled();
+    }
+
     @Override
     public void notLogSql(String fullMapperMethod, int total, long executionTime) {
         log.info("{},total:{},{}ms", getMapperMethodName(fullMapperMethod), total, executionTime);
     }
 
     @Override
-    public void logSql(String fullMapperMethod, int total, long executionTime, String sql) {
+    public void logSql(String fullMapperMethod, int total, long executionTime, CharSequence sql) {
         log.info("{},total:{},{}ms {}", getMapperMethodName(fullMapperMethod), total, executionTime, sql);
     }
+
+    /**
+     * 查询额外打印执行和结果映射的耗时, 例: get,total:100,35ms(exec:5ms,map:30ms,cols:12) select ...
+     * Cursor和自定义ResultHandler打印第一行的耗时, 例: export,total:100000,9000ms(exec:20ms,first:25ms,stream:8980ms) select ...
+     */
+    @Override
+    protected void logSql(SqlEvent event, CharSequence sql) {
+        SqlPhases phases = event.getPhases();
+        if (phases == null || !phases.hasMapping()) {
+            super.logSql(event, sql);
+            return;
+        }
+        String detail = phases.isStreamed()
+                ? "(exec:" + phases.getExecuteMillis() + "ms,first:" + phases.getFirstRowMillis() + "ms,stream:" + phases.getMappingMillis() + "ms)"
+                : "(exec:" + phases.getExecuteMillis() + "ms,map:" + phases.getMappingMillis() + "ms,cols:" + phases.getColumnCount() + ")";
+        if (sql == null) {
+            log.info("{},total:{},{}ms{}", getMapperMethodName(event.getFullMapperMethod()), event.getTotal(), event.getExecutionTime(), detail);
+            return;
+        }
+        log.info("{},total:{},{}ms{} {}", getMapperMethodName(event.getFullMapperMethod()), event.getTotal(), event.getExecutionTime(), detail, sql);
+    }
+
+    @Override
+    protected void logBatch(SqlBatchEvent event, List<CharSequence> samples) {
+        if (samples.isEmpty()) {
+            log.info("{},batch:{},rows:{},{}ms({}us/row)", getMapperMethodName(event.getFullMapperMethod()), event.getBatchSize(),
+                    event.getUpdateCount(), event.getExecutionTime(), event.getMicrosPerRow());
+            return;
+        }
+        log.info("{},batch:{},rows:{},{}ms({}us/row) {}", getMapperMethodName(event.getFullMapperMethod()), event.getBatchSize(),
+                event.getUpdateCount(), event.getExecutionTime(), event.getMicrosPerRow(), new LazySql(() -> String.join("; ", samples)));
+    }
+
+    /**
+     * 例: get,slow:1200ms,explain:3ms select ... where id = ? plan: SELECT ...
+     * 执行计划的换行压缩成空格, 保证日志是一行
+     */
+    @Override
+    public void printExplain(SqlExplainEvent event) {
+        log.warn("{},slow:{}ms,explain:{}ms {} plan: {}", getMapperMethodName(event.getFullMapperMethod()), event.getExecutionTime(),
+                event.getExplainMillis(), event.getFingerprint(), NEW_LINE.matcher(event.getPlan()).replaceAll(" "));
+    }
 }
@@ -21,4 +21,136 @@ public @interface EnableSqlPrint {
      */
     boolean defaultPrint() default true;
 
+    /**
+     * 是否异步打印, 调用线程只采集快照, 渲染和打日志在后台线程完成
+     */
+    boolean async() default false;
+
+    /**
+     * 异步队列容量
+     */
+    int asyncQueueSize() default 8192;
+
+    /**
+     * 异步队列满时的处理策略
+     */
+    OverflowPolicy overflowPolicy() default OverflowPolicy.DROP;
+
+    /**
+     * SAMPLE策略下队列超过一半容量后, 每多少条保留一条
+     */
+    int overflowSampleRate() default 10;
+
+    /**
+     * 预编译sql模板缓存条数, 动态sql较多时调大
+     * 实际按每条1024个字符折算成总字符数限制, 超过16K字符的sql不缓存
+     */
+    int templateCacheSize() default SqlTemplateCache.DEFAULT_MAXIMUM_SIZE;
+
+    /**
+     * 慢sql阈值, 毫秒, 超过时总是打印完整sql, 不受采样和限流影响, 小于0不开启
+     */
+    long slowThreshold() default -1;
+
+    /**
+     * 非慢sql的采样率, 0 ~ 1
+     */
+    double sampleRate() default 1.0;
+
+    /**
+     * 全局每秒最多打印行数, 小于等于0不限制
+     */
+    int maxLinesPerSecond() default -1;
+
+    /**
+     * 每个statement每秒最多打印行数, 小于等于0不限制
+     */
+    int statementMaxLinesPerSecond() default -1;
+
+    /**
+     * 单个参数最多输出的字符数, 参数渲染器自己配置了的以渲染器为准, 小于等于0不限制
+     */
+    int parameterMaxLength() default -1;
+
+    /**
+     * 渲染后sql最大长度, 超过截断并标出原始大小, 小于等于0不限制
+     */
+    int maxSqlLength() default -1;
+
+    /**
+     * 是否把批量插入重复的VALUES (...)和很长的IN列表折叠成 ...(+N more)
+     */
+    boolean collapseRepeated() default true;
+
+    /**
+     * 按sql指纹汇总统计时最多保留的指纹数, 小于等于0不统计
+     * 开启后每次执行都要算指纹, 日志关掉时也有开销, 默认不开, 需要时可以用SqlFingerprintStats.DEFAULT_CAPACITY
+     */
+    int fingerprintCapacity() default 0;
+
+    /**
+     * 定时打印时输出前多少个指纹
+     */
+    int fingerprintTopN() default 20;
+
+    /**
+     * 定时打印指纹top-N的间隔, 秒, 小于等于0不打印
+     */
+    long fingerprintDumpInterval() default -1;
+
+    /**
+     * 按http请求汇总sql, 请求结束时打印一行, 需要spring-webmvc
+     */
+    boolean requestScope() default false;
+
+    /**
+     * 按spring事务汇总sql, 事务完成时打印一行, 已经按请求汇总时不再单独汇总
+     */
+    boolean transactionScope() default false;
+
+    /**
+     * 汇总中同一个statement执行多少次以上列为重复, 用来发现N+1
+     */
+    int scopeRepeatThreshold() default 5;
+
+    /**
+     * 查询返回超过多少行且fetchSize是驱动默认时提示设置fetchSize, 小于等于0不提示
+     */
+    int largeResultRows() default 10000;
+
+    /**
+     * sql异常告警的去重窗口, 秒, 同一个statement的同一种异常每个窗口只告警一次, 小于等于0不告警
+     */
+    long alertWindow() default 60;
+
+    /**
+     * 每个告警窗口最多记录的异常种类数, 超过的丢弃
+     */
+    int alertCapacity() default 1024;
+
+    /**
+     * 超过多少毫秒的查询在后台用新连接执行EXPLAIN, 交给SqlPrinter.printExplain, 小于0不开启
+     */
+    long explainThreshold() default -1;
+
+    /**
+     * 执行计划按sql指纹缓存的有效期, 秒, 有效期内同一种sql只explain一次
+     */
+    long explainTtl() default 600;
+
+    /**
+     * 按数据源(SqlSessionFactory)的打印策略, 没配置的数据源用全局策略, 统计和元数据各数据源独立
+     */
+    SqlDataSource[] dataSources() default {};
+
+    /**
+     * 注册运行时调整打印策略的MXBean, log.mybatis.sql:type=SqlLogControl
+     */
+    boolean runtimeControl() default true;
+
+    /**
+     * 运行时调整打印策略的http端点路径, 比如/mybatis/sql/control, 需要spring-webmvc, 为空不开启
+     */
+    String controlPath() default "";
+
 }
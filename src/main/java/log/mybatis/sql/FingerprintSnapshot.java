@@ -0,0 +1,56 @@
+package log.mybatis.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 某个sql指纹的累计统计, 单位纳秒
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class FingerprintSnapshot {
+
+    private final String fingerprint;
+
+    /**
+     * 第一次看到这个指纹的statement
+     */
+    private final String statementId;
+
+    /**
+     * 调用次数, 包含被淘汰时继承来的误差
+     */
+    private final long count;
+
+    /**
+     * 计数误差上限, 真实次数在count - error和count之间
+     */
+    private final long error;
+
+    private final long totalNanos;
+
+    private final long minNanos;
+
+    private final long maxNanos;
+
+    /**
+     * 返回或影响的总行数
+     */
+    private final long rows;
+
+    public long getMeanNanos() {
+        long calls = count - error;
+        return calls <= 0 ? 0 : totalNanos / calls;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
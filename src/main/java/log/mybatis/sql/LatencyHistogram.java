@@ -0,0 +1,149 @@
+package log.mybatis.sql;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 无锁耗时直方图, 单位纳秒
+ * 对数线性分桶, 每个2的幂区间分8个子桶, 相对误差不超过12.5%
+ * 桶用LongAdder并且用到才创建, 几百个线程同时记录也没有竞争
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder errorCount = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+
+    /**
+     * 记录一次成功执行
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        int inx = bucketIndex(value);
+        LongAdder bucket = buckets.get(inx);
+        if (bucket == null) {
+            bucket = new LongAdder();
+            if (!buckets.compareAndSet(inx, null, bucket)) {
+                bucket = buckets.get(inx);
+            }
+        }
+        bucket.increment();
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    /**
+     * 记录一次失败执行, 耗时同样计入分布
+     */
+    public void recordError(long nanos) {
+        errorCount.increment();
+        record(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 分位值, 返回所在桶的上界, 不超过最大值
+     * @param percentile 0 ~ 1
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                counts[i] = bucket.sum();
+                total += counts[i];
+            }
+        }
+        return percentile(counts, total, percentile);
+    }
+
+    /**
+     * 一次遍历拿到常用的几个分位值
+     */
+    public LatencySnapshot snapshot(String statementId) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                counts[i] = bucket.sum();
+                total += counts[i];
+            }
+        }
+        long sum = totalNanos.sum();
+        return new LatencySnapshot(statementId, total, errorCount.sum(),
+                total == 0 ? 0 : sum / total,
+                percentile(counts, total, 0.50),
+                percentile(counts, total, 0.95),
+                percentile(counts, total, 0.99),
+                maxNanos.get());
+    }
+
+    private long percentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + sub;
+    }
+
+    static long bucketUpperBound(int inx) {
+        if (inx < SUB_BUCKET_COUNT) {
+            return inx;
+        }
+        int exp = inx / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int sub = inx % SUB_BUCKET_COUNT;
+        int shift = exp - SUB_BUCKET_BITS;
+        long lower = ((long) (SUB_BUCKET_COUNT + sub)) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+}
@@ -0,0 +1,49 @@
+package log.mybatis.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 某个statement的耗时统计快照, 单位纳秒
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class LatencySnapshot {
+
+    private final String statementId;
+
+    /**
+     * 调用次数, 包含失败
+     */
+    private final long count;
+
+    /**
+     * 失败次数
+     */
+    private final long errorCount;
+
+    private final long meanNanos;
+
+    private final long p50Nanos;
+
+    private final long p95Nanos;
+
+    private final long p99Nanos;
+
+    private final long maxNanos;
+
+    public double getP99Millis() {
+        return p99Nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
@@ -0,0 +1,55 @@
+package log.mybatis.sql;
+
+import java.util.function.Supplier;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 延迟渲染的sql, 第一次toString时才解析参数和替换占位符, 之后复用结果
+ * 交给日志框架做参数, 日志级别关闭时不会渲染
+ */
+public final class LazySql implements CharSequence {
+
+    private Supplier<String> renderer;
+
+    private String sql;
+
+    public LazySql(Supplier<String> renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * 是否已经渲染过
+     */
+    public boolean isRendered() {
+        return sql != null;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        String rendered = sql;
+        if (rendered == null) {
+            rendered = renderer.get();
+            sql = rendered;
+            // 渲染完释放快照引用
+            renderer = null;
+        }
+        return rendered;
+    }
+
+}
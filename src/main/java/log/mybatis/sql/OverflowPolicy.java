@@ -0,0 +1,25 @@
+package log.mybatis.sql;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 异步打印队列满时的处理策略
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 队列满直接丢弃
+     */
+    DROP,
+
+    /**
+     * 超过高水位后按比例采样, 队列满丢弃
+     */
+    SAMPLE,
+
+    /**
+     * 队列满阻塞调用线程直到有空位
+     */
+    BLOCK
+
+}
@@ -0,0 +1,93 @@
+package log.mybatis.sql;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 记录当前线程正在执行的statement的阶段耗时
+ * 结果映射里可能执行嵌套查询, 所以按栈记录, 栈帧反复使用
+ * 执行顺序: setParameters -> query/update(进栈) -> handleResultSets -> 出栈
+ */
+final class PhaseTracker {
+
+    private static final ThreadLocal<PhaseTracker> CURRENT = ThreadLocal.withInitial(PhaseTracker::new);
+
+    /**
+     * 已经绑定了参数, 还没有进入query/update的耗时
+     */
+    private long pendingBindNanos;
+
+    private Frame[] frames = new Frame[4];
+
+    private int depth;
+
+    private PhaseTracker() {
+    }
+
+    static PhaseTracker get() {
+        return CURRENT.get();
+    }
+
+    void bind(long nanos) {
+        pendingBindNanos += nanos;
+    }
+
+    /**
+     * 批量addBatch不按阶段统计, 丢掉绑定耗时
+     */
+    void clearPending() {
+        pendingBindNanos = 0;
+    }
+
+    Frame push(StatementMeta statementMeta) {
+        if (depth == frames.length) {
+            Frame[] bigger = new Frame[frames.length * 2];
+            System.arraycopy(frames, 0, bigger, 0, frames.length);
+            frames = bigger;
+        }
+        Frame frame = frames[depth];
+        if (frame == null) {
+            frame = new Frame();
+            frames[depth] = frame;
+        }
+        frame.statementMeta = statementMeta;
+        frame.bindNanos = pendingBindNanos;
+        frame.mappingNanos = 0;
+        frame.columnCount = SqlPhases.UNKNOWN;
+        frame.fetchSize = SqlPhases.UNKNOWN;
+        pendingBindNanos = 0;
+        depth++;
+        return frame;
+    }
+
+    /**
+     * 当前statement, 不在query/update里时为null
+     */
+    Frame top() {
+        return depth == 0 ? null : frames[depth - 1];
+    }
+
+    void pop() {
+        if (depth > 0) {
+            frames[--depth].statementMeta = null;
+        }
+    }
+
+    static final class Frame {
+
+        StatementMeta statementMeta;
+
+        long bindNanos;
+
+        long mappingNanos;
+
+        int columnCount;
+
+        int fetchSize;
+
+        SqlPhases toPhases(long totalNanos) {
+            return new SqlPhases(totalNanos, bindNanos, Math.max(0, totalNanos - mappingNanos), mappingNanos, columnCount, fetchSize,
+                    SqlPhases.UNKNOWN, SqlPhases.UNKNOWN);
+        }
+    }
+
+}
@@ -0,0 +1,419 @@
+package log.mybatis.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 单次正向扫描替换sql中的?, 同时把连续空白压缩成一个空格
+ * 字符串, 带引号的标识符和注释里的?不替换
+ */
+public final class PlaceholderReplacer {
+
+    private PlaceholderReplacer() {
+    }
+
+    /**
+     * 替换占位符
+     * @param sql 原始sql
+     * @param parameters 按顺序对应?的参数, 参数不够时保留?
+     * @return 替换后的sql
+     */
+    public static String replace(String sql, List<String> parameters) {
+        StringBuilder out = SqlBuffers.acquire();
+        try {
+            replace(sql, parameters, out);
+            return out.toString();
+        } finally {
+            SqlBuffers.release(out);
+        }
+    }
+
+    /**
+     * 替换占位符, 结果追加到out
+     */
+    public static void replace(String sql, List<String> parameters, StringBuilder out) {
+        scan(sql, parameters, null, out);
+    }
+
+    /**
+     * 预编译成模板, 只做空白压缩, 按?切分成字面量片段
+     */
+    public static SqlTemplate compile(String sql) {
+        StringBuilder out = SqlBuffers.acquire();
+        try {
+            List<String> segments = new ArrayList<>();
+            scan(sql, null, segments, out);
+            segments.add(out.toString());
+            return new SqlTemplate(sql, segments.toArray(new String[0]));
+        } finally {
+            SqlBuffers.release(out);
+        }
+    }
+
+    /**
+     * 生成sql指纹, 同一种形状的sql得到同一个指纹
+     * 字符串和数字字面量替换成?, 去掉注释, 压缩空白, IN列表折叠成(?+), 重复的VALUES组折叠成一组
+     * 折叠在扫描时做, 不用正则, 几万个占位符的sql也不会栈溢出
+     */
+    public static String fingerprint(String sql) {
+        StringBuilder out = SqlBuffers.acquire();
+        try {
+            fingerprint(sql, out);
+            return out.toString();
+        } finally {
+            SqlBuffers.release(out);
+        }
+    }
+
+    /**
+     * 和scan同样的词法规则, 只是字面量和注释不保留
+     */
+    private static void fingerprint(String sql, StringBuilder out) {
+        GroupCollapser groups = new GroupCollapser();
+        int len = sql.length();
+        // 开头的空白不输出
+        boolean lastSpace = true;
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            int mark = out.length();
+            if (c == '\'') {
+                i = copyQuoted(sql, i, c, out);
+                out.setLength(mark);
+                out.append('?');
+                lastSpace = false;
+                continue;
+            }
+            if (c == '"' || c == '`') {
+                i = copyQuoted(sql, i, c, out);
+                lastSpace = false;
+                continue;
+            }
+            if (c == '-' && sql.startsWith("--", i)) {
+                i = copyLineComment(sql, i, out);
+                out.setLength(mark);
+                // 注释按空白处理
+                c = ' ';
+            } else if (c == '/' && sql.startsWith("/*", i)) {
+                i = copyBlockComment(sql, i, out);
+                out.setLength(mark);
+                c = ' ';
+            } else if (c >= '0' && c <= '9' && !isIdentifierPart(out)) {
+                // 标识符里的数字不算字面量, 比如t1, col_2
+                i = skipNumber(sql, i);
+                out.append('?');
+                lastSpace = false;
+                continue;
+            } else {
+                i++;
+            }
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                if (!lastSpace) {
+                    out.append(' ');
+                    lastSpace = true;
+                }
+                continue;
+            }
+            if (c == '(') {
+                groups.open(out);
+            }
+            out.append(c);
+            if (c == ')') {
+                groups.close(out);
+            }
+            lastSpace = false;
+        }
+        if (lastSpace && out.length() > 0) {
+            out.setLength(out.length() - 1);
+        }
+    }
+
+    /**
+     * 指纹扫描时折叠括号, 输出到out的括号结束时调用
+     * 只有占位符的括号改写成(?+), 不含括号的组和前一个组相同且中间只隔一个逗号时去掉, 第一次去掉时写", ..."
+     */
+    private static final class GroupCollapser {
+
+        private int[] opens = new int[8];
+
+        /**
+         * 对应层的括号里是否有括号
+         */
+        private boolean[] nested = new boolean[8];
+
+        private int depth;
+
+        /**
+         * 用来比较的前一个组[groupStart, groupEnd), 没有时groupStart为-1
+         */
+        private int groupStart = -1;
+
+        private int groupEnd;
+
+        /**
+         * 已经折叠时", ..."之后的位置, 没有折叠时为-1
+         */
+        private int collapsedEnd = -1;
+
+        void open(StringBuilder out) {
+            if (depth > 0) {
+                nested[depth - 1] = true;
+            }
+            if (depth == opens.length) {
+                opens = Arrays.copyOf(opens, depth * 2);
+                nested = Arrays.copyOf(nested, depth * 2);
+            }
+            opens[depth] = out.length();
+            nested[depth] = false;
+            depth++;
+        }
+
+        void close(StringBuilder out) {
+            if (depth == 0) {
+                // 多出来的右括号
+                return;
+            }
+            depth--;
+            if (nested[depth]) {
+                return;
+            }
+            int start = opens[depth];
+            if (isPlaceholderList(out, start + 1, out.length() - 1)) {
+                out.setLength(start);
+                out.append("(?+)");
+            }
+            int end = out.length();
+            if (collapsedEnd >= 0 && isSeparator(out, collapsedEnd, start) && sameGroup(out, start, end)) {
+                out.setLength(collapsedEnd);
+                return;
+            }
+            if (groupStart >= 0 && isSeparator(out, groupEnd, start) && sameGroup(out, start, end)) {
+                out.setLength(groupEnd);
+                out.append(", ...");
+                collapsedEnd = out.length();
+                return;
+            }
+            groupStart = start;
+            groupEnd = end;
+            collapsedEnd = -1;
+        }
+
+        private boolean sameGroup(StringBuilder out, int start, int end) {
+            int len = groupEnd - groupStart;
+            if (end - start != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (out.charAt(groupStart + i) != out.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * [from, to)是否只有一个逗号, 前后最多各一个空格
+         */
+        private static boolean isSeparator(StringBuilder out, int from, int to) {
+            if (from < 0 || to - from < 1 || to - from > 3) {
+                return false;
+            }
+            int i = from;
+            if (out.charAt(i) == ' ') {
+                i++;
+            }
+            if (i >= to || out.charAt(i++) != ',') {
+                return false;
+            }
+            return i == to || (i + 1 == to && out.charAt(i) == ' ');
+        }
+
+        /**
+         * 括号内[from, to)是否是 ?, ?, ? 的形式
+         */
+        private static boolean isPlaceholderList(StringBuilder out, int from, int to) {
+            boolean expectPlaceholder = true;
+            boolean any = false;
+            for (int i = from; i < to; i++) {
+                char c = out.charAt(i);
+                if (c == ' ') {
+                    continue;
+                }
+                if (expectPlaceholder ? c != '?' : c != ',') {
+                    return false;
+                }
+                any = true;
+                expectPlaceholder = !expectPlaceholder;
+            }
+            return any && !expectPlaceholder;
+        }
+    }
+
+    private static boolean isIdentifierPart(StringBuilder out) {
+        if (out.length() == 0) {
+            return false;
+        }
+        char c = out.charAt(out.length() - 1);
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+    }
+
+    /**
+     * 跳过数字字面量, 包含小数和科学计数法
+     */
+    private static int skipNumber(String sql, int start) {
+        int len = sql.length();
+        int i = start;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.') {
+                i++;
+            } else if ((c == 'e' || c == 'E') && i + 1 < len) {
+                char next = sql.charAt(i + 1);
+                i += (next == '+' || next == '-') ? 2 : 1;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 扫描sql, segments为空时把?替换成参数, 否则在?处切分片段
+     */
+    private static void scan(String sql, List<String> parameters, List<String> segments, StringBuilder out) {
+        int len = sql.length();
+        int paraInx = 0;
+        int paraSize = parameters == null ? 0 : parameters.size();
+        // 上一个输出的字符是否是压缩后的空格
+        boolean lastSpace = false;
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            switch (c) {
+                case '\'':
+                case '"':
+                case '`':
+                    i = copyQuoted(sql, i, c, out);
+                    lastSpace = false;
+                    continue;
+                case '-':
+                    if (i + 1 < len && sql.charAt(i + 1) == '-') {
+                        i = copyLineComment(sql, i, out);
+                        lastSpace = false;
+                        continue;
+                    }
+                    break;
+                case '/':
+                    if (i + 1 < len && sql.charAt(i + 1) == '*') {
+                        i = copyBlockComment(sql, i, out);
+                        lastSpace = false;
+                        continue;
+                    }
+                    break;
+                case '?':
+                    if (segments != null) {
+                        segments.add(out.toString());
+                        out.setLength(0);
+                    } else if (paraInx < paraSize) {
+                        out.append(parameters.get(paraInx++));
+                    } else {
+                        out.append(c);
+                    }
+                    i++;
+                    lastSpace = false;
+                    continue;
+                case ' ':
+                case '\n':
+                case '\r':
+                case '\t':
+                    // 连续空白只留一个空格
+                    if (!lastSpace) {
+                        out.append(' ');
+                        lastSpace = true;
+                    }
+                    i++;
+                    continue;
+                default:
+                    break;
+            }
+            out.append(c);
+            lastSpace = false;
+            i++;
+        }
+    }
+
+    /**
+     * 复制引号内的内容, 支持\转义和两个引号连写的转义
+     * @return 结束引号之后的下标
+     */
+    static int copyQuoted(String sql, int start, char quote, StringBuilder out) {
+        int len = sql.length();
+        out.append(quote);
+        int i = start + 1;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`' && i + 1 < len) {
+                out.append(c).append(sql.charAt(i + 1));
+                i += 2;
+                continue;
+            }
+            out.append(c);
+            i++;
+            if (c == quote) {
+                if (i < len && sql.charAt(i) == quote) {
+                    out.append(quote);
+                    i++;
+                    continue;
+                }
+                return i;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 复制 -- 注释, 输出是一行, 所以转成块注释, 换行交给外层按空白处理
+     * 注释里的*&#47;会提前结束块注释, 拆成"* /"
+     */
+    static int copyLineComment(String sql, int start, StringBuilder out) {
+        int len = sql.length();
+        out.append("/*");
+        int i = start + 2;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            out.append(c);
+            if (c == '*' && i + 1 < len && sql.charAt(i + 1) == '/') {
+                out.append(' ');
+            }
+            i++;
+        }
+        out.append(" */");
+        return i;
+    }
+
+    /**
+     * 复制块注释, 注释内换行转成空格保证日志是一行
+     */
+    static int copyBlockComment(String sql, int start, StringBuilder out) {
+        int len = sql.length();
+        out.append("/*");
+        int i = start + 2;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '*' && i + 1 < len && sql.charAt(i + 1) == '/') {
+                out.append("*/");
+                return i + 2;
+            }
+            out.append(c == '\n' || c == '\r' || c == '\t' ? ' ' : c);
+            i++;
+        }
+        return i;
+    }
+
+}
@@ -0,0 +1,219 @@
+package log.mybatis.sql;
+
+import org.apache.ibatis.executor.BatchResult;
+
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 收集BATCH执行器每次addBatch的信息, flush时按statement汇总
+ * SqlSession只在一个线程里用, 这里按线程再按执行器记录, 同一线程上别的SqlSession的查询, 提交和回滚不会影响这个执行器的记录
+ * flush或回滚后清掉, 不会留在线程池的线程上
+ */
+public class SqlBatchCollector {
+
+    /**
+     * 每个statement保留几行参数用来渲染样例
+     */
+    public static final int SAMPLE_ROWS = 3;
+
+    /**
+     * key: 执行器, 按引用区分
+     */
+    private final ThreadLocal<Map<Object, Map<BatchKey, Pending>>> pending = new ThreadLocal<>();
+
+    /**
+     * 当前线程正在执行update的执行器, addBatch时记到它名下
+     */
+    private final ThreadLocal<Object> currentExecutor = new ThreadLocal<>();
+
+    /**
+     * 执行器开始update, StatementHandler.batch在这之内调用
+     * @return 之前的执行器, 交给{@link #unbind(Object)}恢复
+     */
+    public Object bind(Object executor) {
+        Object previous = currentExecutor.get();
+        currentExecutor.set(executor);
+        return previous;
+    }
+
+    public void unbind(Object previous) {
+        if (previous == null) {
+            currentExecutor.remove();
+        } else {
+            currentExecutor.set(previous);
+        }
+    }
+
+    /**
+     * 执行器是否有未flush的批量
+     */
+    public boolean hasPending(Object executor) {
+        Map<Object, Map<BatchKey, Pending>> executors = pending.get();
+        return executors != null && executors.containsKey(executor);
+    }
+
+    /**
+     * 是否还需要样例参数
+     */
+    public boolean needSample(StatementMeta statementMeta, String sql) {
+        Map<Object, Map<BatchKey, Pending>> executors = pending.get();
+        Map<BatchKey, Pending> map = executors == null ? null : executors.get(currentExecutor.get());
+        if (map == null) {
+            return true;
+        }
+        Pending p = map.get(new BatchKey(statementMeta.getId(), sql));
+        return p == null || p.samples.size() < SAMPLE_ROWS;
+    }
+
+    /**
+     * 记录一次addBatch, 记到当前执行器名下
+     * @param sampleParameterValues 样例参数, 不需要时为null
+     */
+    public void add(StatementMeta statementMeta, String sql, long nanos, Object[] sampleParameterValues) {
+        Map<Object, Map<BatchKey, Pending>> executors = pending.get();
+        if (executors == null) {
+            executors = new IdentityHashMap<>();
+            pending.set(executors);
+        }
+        Map<BatchKey, Pending> map = executors.computeIfAbsent(currentExecutor.get(), executor -> new LinkedHashMap<>());
+        Pending p = map.computeIfAbsent(new BatchKey(statementMeta.getId(), sql), key -> new Pending(statementMeta, sql));
+        p.count++;
+        p.nanos += nanos;
+        if (sampleParameterValues != null && p.samples.size() < SAMPLE_ROWS) {
+            p.samples.add(sampleParameterValues);
+        }
+    }
+
+    /**
+     * flush完成, 按BatchResult汇总
+     * @param flushNanos 整次flush的耗时
+     */
+    public List<SqlBatchEvent> complete(Object executor, List<?> batchResults, long flushNanos) {
+        Map<BatchKey, Pending> map = remove(executor);
+        if (map == null || batchResults == null) {
+            return Collections.emptyList();
+        }
+        long totalRows = 0;
+        for (Pending p : map.values()) {
+            totalRows += p.count;
+        }
+        List<SqlBatchEvent> events = new ArrayList<>(batchResults.size());
+        for (Object r : batchResults) {
+            if (!(r instanceof BatchResult)) {
+                continue;
+            }
+            BatchResult batchResult = (BatchResult) r;
+            Pending p = map.remove(new BatchKey(batchResult.getMappedStatement().getId(), batchResult.getSql()));
+            if (p == null) {
+                continue;
+            }
+            long share = totalRows == 0 ? 0 : flushNanos * p.count / totalRows;
+            events.add(new SqlBatchEvent(p.statementMeta, p.sql, p.count, updateCount(batchResult.getUpdateCounts()),
+                    p.nanos, share, p.samples));
+        }
+        return events;
+    }
+
+    /**
+     * flush失败, 丢掉未flush的记录
+     * @return 涉及的statement
+     */
+    public List<StatementMeta> abort(Object executor) {
+        Map<BatchKey, Pending> map = remove(executor);
+        if (map == null) {
+            return Collections.emptyList();
+        }
+        Set<StatementMeta> statementMetas = new LinkedHashSet<>();
+        for (Pending p : map.values()) {
+            statementMetas.add(p.statementMeta);
+        }
+        return new ArrayList<>(statementMetas);
+    }
+
+    /**
+     * 回滚或关闭, 丢掉未flush的记录
+     */
+    public void clear(Object executor) {
+        remove(executor);
+    }
+
+    /**
+     * 取出执行器的记录, 线程上没有记录时清掉ThreadLocal
+     */
+    private Map<BatchKey, Pending> remove(Object executor) {
+        Map<Object, Map<BatchKey, Pending>> executors = pending.get();
+        if (executors == null) {
+            return null;
+        }
+        Map<BatchKey, Pending> map = executors.remove(executor);
+        if (executors.isEmpty()) {
+            pending.remove();
+        }
+        return map;
+    }
+
+    private static long updateCount(int[] updateCounts) {
+        if (updateCounts == null) {
+            return -1;
+        }
+        long sum = 0;
+        for (int updateCount : updateCounts) {
+            if (updateCount == Statement.SUCCESS_NO_INFO) {
+                return -1;
+            }
+            sum += Math.max(updateCount, 0);
+        }
+        return sum;
+    }
+
+    private static final class Pending {
+
+        private final StatementMeta statementMeta;
+
+        private final String sql;
+
+        private final List<Object[]> samples = new ArrayList<>(SAMPLE_ROWS);
+
+        private int count;
+
+        private long nanos;
+
+        Pending(StatementMeta statementMeta, String sql) {
+            this.statementMeta = statementMeta;
+            this.sql = sql;
+        }
+    }
+
+    private static final class BatchKey {
+
+        private final String statementId;
+
+        private final String sql;
+
+        BatchKey(String statementId, String sql) {
+            this.statementId = statementId;
+            this.sql = sql;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey that = (BatchKey) o;
+            return statementId.equals(that.statementId) && sql.equals(that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * statementId.hashCode() + sql.hashCode();
+        }
+    }
+
+}
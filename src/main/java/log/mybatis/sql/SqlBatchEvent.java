@@ -0,0 +1,69 @@
+package log.mybatis.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 批量执行的汇总, 一次flush每个statement一条
+ */
+@Getter
+@RequiredArgsConstructor
+public class SqlBatchEvent {
+
+    private final StatementMeta statementMeta;
+
+    private final String sql;
+
+    /**
+     * addBatch的次数
+     */
+    private final int batchSize;
+
+    /**
+     * 影响行数, 驱动没有返回时为-1
+     */
+    private final long updateCount;
+
+    /**
+     * addBatch累计耗时
+     */
+    private final long batchNanos;
+
+    /**
+     * executeBatch耗时, 一次flush有多个statement时按条数分摊
+     */
+    private final long flushNanos;
+
+    /**
+     * 前几行的参数值, 用来渲染样例sql
+     */
+    private final List<Object[]> sampleParameterValues;
+
+    public String getFullMapperMethod() {
+        return statementMeta.getId();
+    }
+
+    public long getTotalNanos() {
+        return batchNanos + flushNanos;
+    }
+
+    /**
+     * 总耗时, 毫秒
+     */
+    public long getExecutionTime() {
+        return TimeUnit.NANOSECONDS.toMillis(getTotalNanos());
+    }
+
+    /**
+     * 每行耗时, 微秒
+     */
+    public long getMicrosPerRow() {
+        return batchSize == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(getTotalNanos()) / batchSize;
+    }
+
+}
@@ -0,0 +1,37 @@
+package log.mybatis.sql;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 每个线程复用的sql缓冲区
+ * 超过上限的用完就丢掉, 防止一条超大sql让缓冲区一直占着内存
+ */
+public final class SqlBuffers {
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private SqlBuffers() {
+    }
+
+    /**
+     * 获取当前线程的缓冲区, 已清空, 用完必须release
+     * 同一线程不能嵌套使用
+     */
+    public static StringBuilder acquire() {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    public static void release(StringBuilder buffer) {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package log.mybatis.sql;
 
+import log.mybatis.sql.control.SqlLogControl;
+import log.mybatis.sql.control.SqlLogControlHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
@@ -7,6 +9,9 @@ import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * @author pengjie.nan
  * @date 2019-04-13
@@ -24,7 +29,61 @@ public class SqlConfig implements ImportBeanDefinitionRegistrar {
         boolean defaultPrintSql = sqlPrint.getBoolean("defaultPrint");
         BeanDefinitionBuilder sqlPrintBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(SqlPrintInterceptor.class);
         sqlPrintBeanDefinition.addPropertyValue("defaultPrint", defaultPrintSql);
+        sqlPrintBeanDefinition.addPropertyValue("async", sqlPrint.getBoolean("async"));
+        sqlPrintBeanDefinition.addPropertyValue("asyncQueueSize", sqlPrint.<Integer>getNumber("asyncQueueSize"));
+        sqlPrintBeanDefinition.addPropertyValue("overflowPolicy", sqlPrint.<OverflowPolicy>getEnum("overflowPolicy"));
+        sqlPrintBeanDefinition.addPropertyValue("overflowSampleRate", sqlPrint.<Integer>getNumber("overflowSampleRate"));
+        sqlPrintBeanDefinition.addPropertyValue("templateCacheSize", sqlPrint.<Integer>getNumber("templateCacheSize"));
+        sqlPrintBeanDefinition.addPropertyValue("slowThreshold", sqlPrint.<Long>getNumber("slowThreshold"));
+        sqlPrintBeanDefinition.addPropertyValue("sampleRate", sqlPrint.<Double>getNumber("sampleRate"));
+        sqlPrintBeanDefinition.addPropertyValue("maxLinesPerSecond", sqlPrint.<Integer>getNumber("maxLinesPerSecond"));
+        sqlPrintBeanDefinition.addPropertyValue("statementMaxLinesPerSecond", sqlPrint.<Integer>getNumber("statementMaxLinesPerSecond"));
+        sqlPrintBeanDefinition.addPropertyValue("parameterMaxLength", sqlPrint.<Integer>getNumber("parameterMaxLength"));
+        sqlPrintBeanDefinition.addPropertyValue("maxSqlLength", sqlPrint.<Integer>getNumber("maxSqlLength"));
+        sqlPrintBeanDefinition.addPropertyValue("collapseRepeated", sqlPrint.getBoolean("collapseRepeated"));
+        sqlPrintBeanDefinition.addPropertyValue("fingerprintCapacity", sqlPrint.<Integer>getNumber("fingerprintCapacity"));
+        sqlPrintBeanDefinition.addPropertyValue("fingerprintTopN", sqlPrint.<Integer>getNumber("fingerprintTopN"));
+        sqlPrintBeanDefinition.addPropertyValue("fingerprintDumpInterval", sqlPrint.<Long>getNumber("fingerprintDumpInterval"));
+        sqlPrintBeanDefinition.addPropertyValue("requestScope", sqlPrint.getBoolean("requestScope"));
+        sqlPrintBeanDefinition.addPropertyValue("transactionScope", sqlPrint.getBoolean("transactionScope"));
+        sqlPrintBeanDefinition.addPropertyValue("scopeRepeatThreshold", sqlPrint.<Integer>getNumber("scopeRepeatThreshold"));
+        sqlPrintBeanDefinition.addPropertyValue("largeResultRows", sqlPrint.<Integer>getNumber("largeResultRows"));
+        sqlPrintBeanDefinition.addPropertyValue("alertWindow", sqlPrint.<Long>getNumber("alertWindow"));
+        sqlPrintBeanDefinition.addPropertyValue("alertCapacity", sqlPrint.<Integer>getNumber("alertCapacity"));
+        sqlPrintBeanDefinition.addPropertyValue("explainThreshold", sqlPrint.<Long>getNumber("explainThreshold"));
+        sqlPrintBeanDefinition.addPropertyValue("explainTtl", sqlPrint.<Long>getNumber("explainTtl"));
+        sqlPrintBeanDefinition.addPropertyValue("dataSourcePolicies", dataSourcePolicies(sqlPrint.getAnnotationArray("dataSources")));
         registry.registerBeanDefinition(SqlPrintInterceptor.class.getName(), sqlPrintBeanDefinition.getBeanDefinition());
 
+        String controlPath = sqlPrint.getString("controlPath");
+        if (!sqlPrint.getBoolean("runtimeControl") && controlPath.isEmpty()) {
+            return;
+        }
+        registry.registerBeanDefinition(SqlLogControl.class.getName(), BeanDefinitionBuilder.rootBeanDefinition(SqlLogControl.class)
+                .addConstructorArgReference(SqlPrintInterceptor.class.getName()).getBeanDefinition());
+        if (!controlPath.isEmpty()) {
+            if (!controlPath.startsWith("/")) {
+                controlPath = "/" + controlPath;
+            }
+            log.info("sql log control endpoint = {}", controlPath);
+            // bean名字以/开头, BeanNameUrlHandlerMapping直接映射成路径
+            registry.registerBeanDefinition(controlPath, BeanDefinitionBuilder.rootBeanDefinition(SqlLogControlHandler.class)
+                    .addConstructorArgReference(SqlLogControl.class.getName()).getBeanDefinition());
+        }
+
+    }
+
+    /**
+     * SqlDataSource转成数据源级别的覆盖, INHERIT和小于0的项按全局
+     */
+    private static Map<String, SqlLogOverride> dataSourcePolicies(AnnotationAttributes[] dataSources) {
+        Map<String, SqlLogOverride> policies = new LinkedHashMap<>();
+        for (AnnotationAttributes dataSource : dataSources) {
+            long slowThreshold = dataSource.<Long>getNumber("slowThreshold");
+            double sampleRate = dataSource.<Double>getNumber("sampleRate");
+            policies.put(dataSource.getString("value"), new SqlLogOverride(dataSource.<SqlDataSource.Print>getEnum("defaultPrint").toBoolean(),
+                    slowThreshold < 0 ? null : slowThreshold, sampleRate < 0 ? null : sampleRate));
+        }
+        return policies;
     }
 }
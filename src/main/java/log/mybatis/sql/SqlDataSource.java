@@ -0,0 +1,59 @@
+package log.mybatis.sql;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 按数据源配置打印策略, 用在EnableSqlPrint.dataSources里
+ * 比如主库全部打印, 报表库只采样: @SqlDataSource(value = "reportSqlSessionFactory", sampleRate = 0.05)
+ * SqlLog注解和运行时覆盖仍然优先
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SqlDataSource {
+
+    /**
+     * SqlSessionFactory的bean名
+     */
+    String value();
+
+    /**
+     * 没有注解时是否打印sql, 默认按全局
+     */
+    Print defaultPrint() default Print.INHERIT;
+
+    /**
+     * 慢sql阈值, 毫秒, 小于0按全局
+     */
+    long slowThreshold() default -1;
+
+    /**
+     * 非慢sql的采样率, 小于0按全局
+     */
+    double sampleRate() default -1;
+
+    enum Print {
+
+        /**
+         * 按全局
+         */
+        INHERIT,
+
+        TRUE,
+
+        FALSE;
+
+        /**
+         * @return INHERIT时返回null
+         */
+        public Boolean toBoolean() {
+            return this == INHERIT ? null : this == TRUE;
+        }
+    }
+
+}
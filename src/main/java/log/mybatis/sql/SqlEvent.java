@@ -0,0 +1,57 @@
+package log.mybatis.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 一次sql执行的快照, 调用线程只做采集, 渲染交给打印线程
+ */
+@Getter
+@RequiredArgsConstructor
+public class SqlEvent {
+
+    /**
+     * statement元数据
+     */
+    private final StatementMeta statementMeta;
+
+    /**
+     * 返回总数
+     */
+    private final int total;
+
+    /**
+     * 执行时间
+     */
+    private final long executionTime;
+
+    /**
+     * 是否打印sql, 不打印时sql和参数为空
+     */
+    private final boolean print;
+
+    /**
+     * 原始sql
+     */
+    private final String sql;
+
+    /**
+     * ?对应的参数值
+     */
+    private final Object[] parameterValues;
+
+    /**
+     * 各阶段耗时
+     */
+    private final SqlPhases phases;
+
+    /**
+     * statement id, mapper全限定名
+     */
+    public String getFullMapperMethod() {
+        return statementMeta.getId();
+    }
+
+}
@@ -0,0 +1,49 @@
+package log.mybatis.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 慢sql的执行计划, 在后台线程上拿到后交给打印器
+ */
+@Getter
+@RequiredArgsConstructor
+public class SqlExplainEvent {
+
+    private final StatementMeta statementMeta;
+
+    /**
+     * 带?的sql
+     */
+    private final String sql;
+
+    private final String fingerprint;
+
+    /**
+     * 触发explain的那次执行的耗时, 毫秒
+     */
+    private final long executionTime;
+
+    /**
+     * 执行计划, 多行时用换行分隔
+     */
+    private final String plan;
+
+    /**
+     * explain本身的耗时
+     */
+    private final long explainNanos;
+
+    public String getFullMapperMethod() {
+        return statementMeta.getId();
+    }
+
+    public long getExplainMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(explainNanos);
+    }
+
+}
@@ -0,0 +1,213 @@
+package log.mybatis.sql;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 按sql指纹汇总的次数, 耗时和行数, 类似pg_stat_statements
+ * 动态sql的变体没有上限, 用space-saving算法只保留固定条数: 满了以后新指纹替换次数最少的一条并继承它的次数作为误差,
+ * 真正高频的指纹不会被挤掉
+ * 替换时要扫描整张表, 只让一个线程做, 其他线程拿不到锁时丢掉这次记录, 不在执行sql的线程上排队
+ */
+public class SqlFingerprintStats {
+
+    /**
+     * 建议的容量, 默认不开启
+     */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    /**
+     * 每个指纹平均缓存多少字符的原始sql, 乘以容量就是缓存的总字符数
+     */
+    private static final long CACHED_CHARS_PER_FINGERPRINT = 8 * 512;
+
+    /**
+     * 超过这个长度的sql不进缓存, 每次现算, 一般是foreach拼出来的大sql, 缓存起来只会挤掉别的
+     */
+    static final int MAX_CACHED_SQL_LENGTH = 4096;
+
+    private final int capacity;
+
+    /**
+     * 原始sql到指纹, 静态sql命中后只是一次hash查找, 按字符数而不是条数限制大小
+     */
+    private final LoadingCache<String, String> fingerprints;
+
+    private final Map<String, Counter> counters;
+
+    private final ReentrantLock admitLock = new ReentrantLock();
+
+    /**
+     * 别的线程正在替换时丢掉的记录数
+     */
+    private final LongAdder skipped = new LongAdder();
+
+    public SqlFingerprintStats(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("fingerprintCapacity must be positive, but was " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new ConcurrentHashMap<>(capacity * 2);
+        this.fingerprints = CacheBuilder.newBuilder()
+                .maximumWeight(capacity * CACHED_CHARS_PER_FINGERPRINT)
+                .weigher((String sql, String fingerprint) -> sql.length() + fingerprint.length())
+                .build(new CacheLoader<String, String>() {
+                    @Override
+                    public String load(String sql) {
+                        return PlaceholderReplacer.fingerprint(sql);
+                    }
+                });
+    }
+
+    /**
+     * 原始sql的指纹, 走缓存
+     */
+    public String fingerprint(String sql) {
+        if (sql.length() > MAX_CACHED_SQL_LENGTH) {
+            return PlaceholderReplacer.fingerprint(sql);
+        }
+        return fingerprints.getUnchecked(sql);
+    }
+
+    /**
+     * 记录一次执行
+     * @param statementId statement id
+     * @param sql 原始sql
+     * @param nanos 耗时
+     * @param rows 返回或影响的行数
+     */
+    public void record(String statementId, String sql, long nanos, long rows) {
+        String fingerprint = fingerprint(sql);
+        Counter counter = counters.get(fingerprint);
+        if (counter == null) {
+            if (!admitLock.tryLock()) {
+                skipped.increment();
+                return;
+            }
+            try {
+                counter = admit(fingerprint, statementId);
+            } finally {
+                admitLock.unlock();
+            }
+        }
+        counter.record(nanos, rows);
+    }
+
+    /**
+     * 新指纹进表, 满了就替换次数最少的一条
+     * 被替换的计数器上可能还有并发的record, 这部分会丢掉, 统计本来就是近似值
+     */
+    private Counter admit(String fingerprint, String statementId) {
+        Counter counter = counters.get(fingerprint);
+        if (counter != null) {
+            return counter;
+        }
+        long error = 0;
+        if (counters.size() >= capacity) {
+            Map.Entry<String, Counter> min = null;
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                if (min == null || entry.getValue().count.sum() < min.getValue().count.sum()) {
+                    min = entry;
+                }
+            }
+            counters.remove(min.getKey());
+            error = min.getValue().count.sum();
+        }
+        counter = new Counter(statementId, error);
+        counters.put(fingerprint, counter);
+        return counter;
+    }
+
+    /**
+     * 按总耗时倒序取前n个
+     */
+    public List<FingerprintSnapshot> top(int n) {
+        return top(n, Comparator.comparingLong(FingerprintSnapshot::getTotalNanos).reversed());
+    }
+
+    /**
+     * 按指定顺序取前n个
+     */
+    public List<FingerprintSnapshot> top(int n, Comparator<FingerprintSnapshot> comparator) {
+        List<FingerprintSnapshot> snapshots = new ArrayList<>(counters.size());
+        counters.forEach((fingerprint, counter) -> snapshots.add(counter.snapshot(fingerprint)));
+        snapshots.sort(comparator);
+        return snapshots.size() <= n ? snapshots : new ArrayList<>(snapshots.subList(0, n));
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        admitLock.lock();
+        try {
+            counters.clear();
+        } finally {
+            admitLock.unlock();
+        }
+    }
+
+    private static final class Counter {
+
+        private final String statementId;
+
+        private final long error;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAccumulator minNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Counter(String statementId, long error) {
+            this.statementId = statementId;
+            this.error = error;
+            this.count.add(error);
+        }
+
+        void record(long nanos, long rows) {
+            count.increment();
+            totalNanos.add(nanos);
+            if (rows > 0) {
+                this.rows.add(rows);
+            }
+            minNanos.accumulate(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        FingerprintSnapshot snapshot(String fingerprint) {
+            long min = minNanos.get();
+            return new FingerprintSnapshot(fingerprint, statementId, count.sum(), error, totalNanos.sum(),
+                    min == Long.MAX_VALUE ? 0 : min, maxNanos.get(), rows.sum());
+        }
+    }
+
+}
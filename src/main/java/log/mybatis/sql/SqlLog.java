@@ -24,4 +24,24 @@ public @interface SqlLog {
      */
     Class<? extends Exception>[] ignoreExceptionList() default {};
 
+    /**
+     * 慢sql阈值, 毫秒, 超过时总是打印完整sql, 小于0使用全局配置
+     */
+    long slowThreshold() default -1;
+
+    /**
+     * 非慢sql的采样率, 0 ~ 1, 小于0使用全局配置
+     */
+    double sampleRate() default -1;
+
+    /**
+     * 每秒最多打印行数, 0不限制, 小于0使用全局配置
+     */
+    int maxLinesPerSecond() default -1;
+
+    /**
+     * 渲染后sql最大长度, 超过截断, 0不限制, 小于0使用全局配置
+     */
+    int maxSqlLength() default -1;
+
 }
@@ -0,0 +1,122 @@
+package log.mybatis.sql;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 渲染之前决定是否输出: 慢sql总是输出, 其余先采样再过statement和全局两级令牌桶
+ * 全部是无锁判断
+ */
+public class SqlLogGate {
+
+    /**
+     * 不限制
+     */
+    public static final SqlLogGate UNLIMITED = new SqlLogGate(-1);
+
+    public enum Decision {
+
+        /**
+         * 不输出
+         */
+        SKIP,
+
+        /**
+         * 只输出耗时和条数
+         */
+        SUMMARY,
+
+        /**
+         * 输出完整sql
+         */
+        SQL
+    }
+
+    private final TokenBucket globalBucket;
+
+    private final LongAdder slowCount = new LongAdder();
+
+    private final LongAdder sampledOut = new LongAdder();
+
+    private final LongAdder statementRateLimited = new LongAdder();
+
+    private final LongAdder globalRateLimited = new LongAdder();
+
+    /**
+     * @param maxLinesPerSecond 全局每秒最多打印行数, 小于等于0不限制
+     */
+    public SqlLogGate(int maxLinesPerSecond) {
+        this.globalBucket = maxLinesPerSecond > 0 ? new TokenBucket(maxLinesPerSecond) : null;
+    }
+
+    public Decision decide(StatementMeta statementMeta, long executionTime) {
+        long slowThreshold = statementMeta.getSlowThreshold();
+        if (slowThreshold >= 0 && executionTime >= slowThreshold) {
+            slowCount.increment();
+            return Decision.SQL;
+        }
+        double sampleRate = statementMeta.getSampleRate();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            statementMeta.getSuppressed().increment();
+            return Decision.SKIP;
+        }
+        TokenBucket statementBucket = statementMeta.getRateLimiter();
+        if (statementBucket != null && !statementBucket.tryAcquire()) {
+            statementRateLimited.increment();
+            statementMeta.getSuppressed().increment();
+            return Decision.SKIP;
+        }
+        if (globalBucket != null && !globalBucket.tryAcquire()) {
+            globalRateLimited.increment();
+            statementMeta.getSuppressed().increment();
+            return Decision.SKIP;
+        }
+        return statementMeta.isPrint() ? Decision.SQL : Decision.SUMMARY;
+    }
+
+    /**
+     * 超过慢sql阈值的次数
+     */
+    public long getSlowCount() {
+        return slowCount.sum();
+    }
+
+    /**
+     * 被采样丢掉的行数
+     */
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+
+    /**
+     * 被statement令牌桶丢掉的行数
+     */
+    public long getStatementRateLimitedCount() {
+        return statementRateLimited.sum();
+    }
+
+    /**
+     * 被全局令牌桶丢掉的行数
+     */
+    public long getGlobalRateLimitedCount() {
+        return globalRateLimited.sum();
+    }
+
+    /**
+     * 所有被丢掉的行数
+     */
+    public long getSuppressedCount() {
+        return sampledOut.sum() + statementRateLimited.sum() + globalRateLimited.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlLogGate{slow=" + getSlowCount() + ", sampledOut=" + getSampledOutCount()
+                + ", statementRateLimited=" + getStatementRateLimitedCount()
+                + ", globalRateLimited=" + getGlobalRateLimitedCount() + '}';
+    }
+
+}
@@ -0,0 +1,50 @@
+package log.mybatis.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 运行时对某个statement或mapper的覆盖配置, 优先级高于SqlLog注解, 为null的项不覆盖
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class SqlLogOverride {
+
+    public static final SqlLogOverride NONE = new SqlLogOverride(null, null, null);
+
+    /**
+     * 是否打印sql
+     */
+    private final Boolean print;
+
+    /**
+     * 慢sql阈值, 毫秒
+     */
+    private final Long slowThreshold;
+
+    /**
+     * 非慢sql的采样率
+     */
+    private final Double sampleRate;
+
+    /**
+     * 叠加另一个覆盖, other中不为null的项优先
+     */
+    public SqlLogOverride merge(SqlLogOverride other) {
+        if (other == null || other == NONE) {
+            return this;
+        }
+        return new SqlLogOverride(other.print != null ? other.print : print,
+                other.slowThreshold != null ? other.slowThreshold : slowThreshold,
+                other.sampleRate != null ? other.sampleRate : sampleRate);
+    }
+
+    public boolean isEmpty() {
+        return print == null && slowThreshold == null && sampleRate == null;
+    }
+
+}
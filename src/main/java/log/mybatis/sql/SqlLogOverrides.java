@@ -0,0 +1,71 @@
+package log.mybatis.sql;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 运行时覆盖配置的不可变快照, 修改时生成新快照
+ * key是statement id或者mapper全限定名(namespace), statement上的覆盖优先
+ */
+public final class SqlLogOverrides {
+
+    public static final SqlLogOverrides EMPTY = new SqlLogOverrides(Collections.emptyMap());
+
+    private final Map<String, SqlLogOverride> overrides;
+
+    private SqlLogOverrides(Map<String, SqlLogOverride> overrides) {
+        this.overrides = overrides;
+    }
+
+    /**
+     * statement生效的覆盖, 没有返回NONE
+     */
+    public SqlLogOverride find(String statementId) {
+        if (overrides.isEmpty()) {
+            return SqlLogOverride.NONE;
+        }
+        int inx = statementId.lastIndexOf('.');
+        SqlLogOverride mapper = inx < 0 ? null : overrides.get(statementId.substring(0, inx));
+        SqlLogOverride statement = overrides.get(statementId);
+        return (mapper == null ? SqlLogOverride.NONE : mapper).merge(statement);
+    }
+
+    /**
+     * 叠加target上的覆盖, 空覆盖等于删除
+     */
+    public SqlLogOverrides with(String target, SqlLogOverride override) {
+        SqlLogOverride merged = overrides.getOrDefault(target, SqlLogOverride.NONE).merge(override);
+        Map<String, SqlLogOverride> copy = new LinkedHashMap<>(overrides);
+        if (merged.isEmpty()) {
+            copy.remove(target);
+        } else {
+            copy.put(target, merged);
+        }
+        return new SqlLogOverrides(Collections.unmodifiableMap(copy));
+    }
+
+    public SqlLogOverrides without(String target) {
+        if (!overrides.containsKey(target)) {
+            return this;
+        }
+        Map<String, SqlLogOverride> copy = new LinkedHashMap<>(overrides);
+        copy.remove(target);
+        return new SqlLogOverrides(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * 只读视图
+     */
+    public Map<String, SqlLogOverride> asMap() {
+        return overrides;
+    }
+
+    @Override
+    public String toString() {
+        return overrides.toString();
+    }
+
+}
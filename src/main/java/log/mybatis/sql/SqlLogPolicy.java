@@ -0,0 +1,70 @@
+package log.mybatis.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.With;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 全局打印策略, 来自EnableSqlPrint, SqlLog上的配置优先
+ * 不可变, 运行时修改时用withXxx生成新对象
+ */
+@With
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class SqlLogPolicy {
+
+    public static final SqlLogPolicy DEFAULT = new SqlLogPolicy(true, -1, 1.0, -1, -1, -1, true);
+
+    /**
+     * 没有注解时是否打印sql
+     */
+    private final boolean defaultPrint;
+
+    /**
+     * 慢sql阈值, 毫秒, 超过时总是打印完整sql, 小于0不开启
+     */
+    private final long slowThreshold;
+
+    /**
+     * 非慢sql的采样率, 0 ~ 1
+     */
+    private final double sampleRate;
+
+    /**
+     * 全局每秒最多打印行数, 小于等于0不限制
+     */
+    private final int maxLinesPerSecond;
+
+    /**
+     * 每个statement每秒最多打印行数, 小于等于0不限制
+     */
+    private final int statementMaxLinesPerSecond;
+
+    /**
+     * 渲染后sql最大长度, 小于等于0不限制
+     */
+    private final int maxSqlLength;
+
+    /**
+     * 是否折叠重复的VALUES和很长的IN列表
+     */
+    private final boolean collapseRepeated;
+
+    /**
+     * 叠加覆盖, 为null的项不变
+     */
+    public SqlLogPolicy with(SqlLogOverride override) {
+        if (override == null || override.isEmpty()) {
+            return this;
+        }
+        return new SqlLogPolicy(override.getPrint() != null ? override.getPrint() : defaultPrint,
+                override.getSlowThreshold() != null ? override.getSlowThreshold() : slowThreshold,
+                override.getSampleRate() != null ? override.getSampleRate() : sampleRate,
+                maxLinesPerSecond, statementMaxLinesPerSecond, maxSqlLength, collapseRepeated);
+    }
+
+}
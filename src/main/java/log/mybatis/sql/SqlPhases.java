@@ -0,0 +1,116 @@
+package log.mybatis.sql;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 一次执行各阶段的耗时, 单位纳秒
+ * StatementHandler.query里包含了结果映射, 拆开后能分清是数据库慢还是映射大结果集慢
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class SqlPhases {
+
+    /**
+     * 未知的值
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * StatementHandler.query/update的总耗时, 不包含参数绑定
+     */
+    private final long totalNanos;
+
+    /**
+     * ParameterHandler.setParameters耗时, 在query/update之前
+     */
+    private final long bindNanos;
+
+    /**
+     * 数据库执行耗时, 总耗时减去结果映射
+     */
+    private final long executeNanos;
+
+    /**
+     * ResultSetHandler.handleResultSets耗时, 嵌套查询也算在里面
+     */
+    private final long mappingNanos;
+
+    /**
+     * 结果集列数, 更新或者没取到时为UNKNOWN
+     */
+    private final int columnCount;
+
+    /**
+     * statement的fetchSize, 0是驱动默认, 没取到时为UNKNOWN
+     */
+    private final int fetchSize;
+
+    /**
+     * Cursor和自定义ResultHandler逐行数出的行数, 其他查询为UNKNOWN, 由返回值得出
+     */
+    private final long rows;
+
+    /**
+     * 从开始执行到拿到第一行的耗时, 只有流式查询有, 否则为UNKNOWN
+     */
+    private final long firstRowNanos;
+
+    /**
+     * 只知道总耗时
+     */
+    public static SqlPhases ofTotal(long totalNanos) {
+        return new SqlPhases(totalNanos, 0, totalNanos, 0, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * 补上流式查询数出的行数和第一行耗时
+     */
+    public SqlPhases withRows(long rows, long firstRowNanos) {
+        return new SqlPhases(totalNanos, bindNanos, executeNanos, mappingNanos, columnCount, fetchSize, rows, firstRowNanos);
+    }
+
+    /**
+     * 是否是逐行数出的行数
+     */
+    public boolean isStreamed() {
+        return rows != UNKNOWN;
+    }
+
+    /**
+     * 总耗时, 毫秒
+     */
+    public long getExecutionTime() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    public long getExecuteMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(executeNanos);
+    }
+
+    public long getMappingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mappingNanos);
+    }
+
+    public long getFirstRowMillis() {
+        return firstRowNanos == UNKNOWN ? UNKNOWN : TimeUnit.NANOSECONDS.toMillis(firstRowNanos);
+    }
+
+    public long getBindMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(bindNanos);
+    }
+
+    /**
+     * 是否有结果映射阶段
+     */
+    public boolean hasMapping() {
+        return columnCount != UNKNOWN || mappingNanos > 0;
+    }
+
+}
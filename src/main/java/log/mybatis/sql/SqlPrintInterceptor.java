@@ -1,26 +1,57 @@
 package log.mybatis.sql;
 
-import com.google.common.base.Stopwatch;
+import log.mybatis.sql.alert.LogSqlAlertSender;
+import log.mybatis.sql.alert.SqlAlertDispatcher;
+import log.mybatis.sql.alert.SqlAlertSender;
+import log.mybatis.sql.explain.ExplainDialect;
+import log.mybatis.sql.explain.SqlExplainer;
+import log.mybatis.sql.metrics.SqlMetrics;
+import log.mybatis.sql.scope.SqlScope;
+import log.mybatis.sql.scope.SqlScopeTransactionSynchronization;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.*;
 import org.apache.ibatis.reflection.ExceptionUtil;
-import org.apache.ibatis.reflection.MetaObject;
-import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.MyBatisExceptionTranslator;
 import org.mybatis.spring.SqlSessionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.util.ClassUtils;
 
-import javax.annotation.Resource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * Sql执行时间记录拦截器
@@ -28,54 +59,675 @@ import java.util.concurrent.TimeUnit;
  */
 @Intercepts({
     @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
-    @Signature(type = StatementHandler.class, method = "update", args = {Statement.class})
+    @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+    @Signature(type = StatementHandler.class, method = "queryCursor", args = {Statement.class}),
+    @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class}),
+    @Signature(type = ParameterHandler.class, method = "setParameters", args = {PreparedStatement.class}),
+    @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class}),
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "flushStatements", args = {}),
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class}),
+    @Signature(type = Executor.class, method = "commit", args = {boolean.class}),
+    @Signature(type = Executor.class, method = "rollback", args = {boolean.class}),
+    @Signature(type = Executor.class, method = "close", args = {boolean.class})
 })
-public class SqlPrintInterceptor implements Interceptor {
+public class SqlPrintInterceptor implements Interceptor, InitializingBean, DisposableBean, ApplicationListener<ContextRefreshedEvent> {
 
     private static final Logger log = LoggerFactory.getLogger(SqlPrintInterceptor.class);
 
+    /**
+     * 大结果集建议的fetchSize
+     */
+    private static final int SUGGESTED_FETCH_SIZE = 1000;
+
+    /**
+     * 按错误码翻译异常需要spring-jdbc, mybatis-spring里是provided
+     */
+    private static final boolean SPRING_JDBC_PRESENT = ClassUtils.isPresent(
+            "org.springframework.jdbc.support.SQLExceptionTranslator", SqlPrintInterceptor.class.getClassLoader());
+
 
     private boolean defaultPrint = true;
 
+    private boolean async = false;
+
+    private int asyncQueueSize = 8192;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    private int overflowSampleRate = 10;
+
+    private int templateCacheSize = SqlTemplateCache.DEFAULT_MAXIMUM_SIZE;
+
+    private long slowThreshold = -1;
+
+    private double sampleRate = 1.0;
+
+    private int maxLinesPerSecond = -1;
+
+    private int statementMaxLinesPerSecond = -1;
+
+    private int parameterMaxLength = -1;
+
+    private int maxSqlLength = -1;
+
+    private boolean collapseRepeated = true;
+
+    private int fingerprintCapacity = 0;
+
+    private int fingerprintTopN = 20;
+
+    private long fingerprintDumpInterval = -1;
+
+    private boolean requestScope = false;
+
+    private boolean transactionScope = false;
+
+    private int scopeRepeatThreshold = 5;
+
+    private int largeResultRows = 10000;
+
+    private long alertWindow = 60;
+
+    private int alertCapacity = 1024;
+
+    private long explainThreshold = -1;
+
+    private long explainTtl = 600;
+
+    /**
+     * 按数据源配置的策略, key: SqlSessionFactory的bean名
+     */
+    private Map<String, SqlLogOverride> dataSourcePolicies = Collections.emptyMap();
+
+    /**
+     * 全局策略, 属性设置完后按配置生成
+     */
+    private volatile SqlLogPolicy policy = SqlLogPolicy.DEFAULT;
+
+    /**
+     * statement或mapper上的运行时覆盖
+     */
+    private volatile SqlLogOverrides overrides = SqlLogOverrides.EMPTY;
+
+    /**
+     * 各数据源的元数据和统计, key: SqlSessionFactory的Configuration
+     * 写时复制, 热路径只读一次volatile, 数据源之间不共享map
+     */
+    private volatile Map<Configuration, DataSourceProfile> profiles = Collections.emptyMap();
+
+    /**
+     * 按sql指纹汇总的统计, 关闭时为null
+     */
+    private SqlFingerprintStats fingerprintStats;
+
+    /**
+     * 定时打印指纹top-N
+     */
+    private ScheduledExecutorService fingerprintDumper;
+
+    /**
+     * 已经提示过fetchSize的statement, 每个只提示一次
+     */
+    private final Set<String> fetchSizeAdvised = ConcurrentHashMap.newKeySet();
+
+    /**
+     * BATCH执行器未flush的addBatch记录
+     */
+    private final SqlBatchCollector batchCollector = new SqlBatchCollector();
+
+    /**
+     * 异步模式下的分发器, 同步模式为null
+     */
+    private AsyncSqlDispatcher asyncDispatcher;
+
     @Autowired
     private SqlPrinter sqlPrinter;
 
-    @Lazy
-    @Resource
-    private SqlSessionTemplate sqlSessionTemplate;
+    /**
+     * micrometer或JMX指标, 没有配置时不输出
+     */
+    @Autowired(required = false)
+    private SqlMetrics sqlMetrics = SqlMetrics.NOOP;
+
+    /**
+     * 告警发送方式, 没有配置时打error日志
+     */
+    @Autowired(required = false)
+    private SqlAlertSender sqlAlertSender = new LogSqlAlertSender();
+
+    /**
+     * 自定义EXPLAIN语法, 没有配置时按数据库自动识别
+     */
+    @Autowired(required = false)
+    private ExplainDialect explainDialect;
+
+    /**
+     * 慢sql的执行计划, explainThreshold小于0时为null
+     */
+    private SqlExplainer explainer;
+
+    /**
+     * 异步去重的告警, alertWindow小于等于0时为null
+     */
+    private SqlAlertDispatcher alertDispatcher;
 
     public SqlPrintInterceptor() {
     }
 
+    @Override
+    public void afterPropertiesSet() {
+        policy = new SqlLogPolicy(defaultPrint, slowThreshold, sampleRate, maxLinesPerSecond,
+                statementMaxLinesPerSecond, maxSqlLength, collapseRepeated);
+        log.info("sql log policy = {}, data source policies = {}", policy, dataSourcePolicies);
+        if (sqlPrinter instanceof AbstractSqlPrinter) {
+            ((AbstractSqlPrinter) sqlPrinter).setTemplateCacheSize(templateCacheSize);
+            ((AbstractSqlPrinter) sqlPrinter).setLogGate(new SqlLogGate(maxLinesPerSecond));
+            ((AbstractSqlPrinter) sqlPrinter).setParameterMaxLength(parameterMaxLength);
+        }
+        if (fingerprintCapacity > 0) {
+            fingerprintStats = new SqlFingerprintStats(fingerprintCapacity);
+            if (fingerprintDumpInterval > 0) {
+                fingerprintDumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "sql-fingerprint-dump");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                fingerprintDumper.scheduleWithFixedDelay(this::dumpFingerprints, fingerprintDumpInterval,
+                        fingerprintDumpInterval, TimeUnit.SECONDS);
+            }
+        }
+        sqlMetrics.bindTo(this);
+        if (explainThreshold >= 0) {
+            if (sqlPrinter instanceof AbstractSqlPrinter) {
+                explainer = new SqlExplainer(sqlPrinter, explainDialect, explainTtl);
+            } else {
+                log.warn("{} 不是AbstractSqlPrinter, 无法采集参数, 不做explain", sqlPrinter.getClass().getName());
+            }
+        }
+        if (alertWindow > 0) {
+            alertDispatcher = new SqlAlertDispatcher(sqlAlertSender, TimeUnit.SECONDS.toMillis(alertWindow), alertCapacity);
+        }
+        if (!async) {
+            return;
+        }
+        if (!(sqlPrinter instanceof AbstractSqlPrinter)) {
+            log.warn("{} 不是AbstractSqlPrinter, 无法异步打印, 使用同步打印", sqlPrinter.getClass().getName());
+            return;
+        }
+        asyncDispatcher = new AsyncSqlDispatcher((AbstractSqlPrinter) sqlPrinter, asyncQueueSize, overflowPolicy, overflowSampleRate);
+        log.info("async sql print enabled, queueSize = {}, overflowPolicy = {}", asyncQueueSize, overflowPolicy);
+    }
+
+    @Override
+    public void destroy() {
+        if (fingerprintDumper != null) {
+            fingerprintDumper.shutdownNow();
+        }
+        if (asyncDispatcher != null) {
+            asyncDispatcher.shutdown();
+        }
+        if (alertDispatcher != null) {
+            alertDispatcher.shutdown();
+        }
+        if (explainer != null) {
+            explainer.shutdown();
+        }
+    }
+
+    /**
+     * 容器启动完成后按bean名注册各数据源, 并行构建所有statement的元数据, 避免第一次调用时再反射
+     * SqlSessionTemplate上配置的异常翻译优先, 没有时按数据源的错误码翻译
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        Map<SqlSessionFactory, PersistenceExceptionTranslator> translators = new IdentityHashMap<>();
+        for (SqlSessionTemplate template : event.getApplicationContext().getBeansOfType(SqlSessionTemplate.class).values()) {
+            translators.putIfAbsent(template.getSqlSessionFactory(), template.getPersistenceExceptionTranslator());
+        }
+        event.getApplicationContext().getBeansOfType(SqlSessionFactory.class).forEach((name, sqlSessionFactory) -> {
+            DataSourceProfile profile = register(sqlSessionFactory.getConfiguration(), name, translators.get(sqlSessionFactory));
+            profile.getStatementMetaIndex().build(sqlSessionFactory.getConfiguration().getMappedStatements());
+        });
+    }
+
+    /**
+     * statement元数据, 按Configuration找到所属数据源
+     */
+    private StatementMeta statementMeta(MappedStatement mappedStatement) {
+        DataSourceProfile profile = profiles.get(mappedStatement.getConfiguration());
+        if (profile == null) {
+            profile = register(mappedStatement.getConfiguration(), null, null);
+        }
+        return profile.getStatementMetaIndex().get(mappedStatement);
+    }
+
+    /**
+     * 注册数据源, 第一次执行时还没有bean名的先按Environment的id注册, 拿到bean名后改名, 统计沿用
+     * @param name SqlSessionFactory的bean名, 为null时用Environment的id
+     * @param translator 异常翻译, 为null时按数据源的错误码翻译
+     */
+    private synchronized DataSourceProfile register(Configuration configuration, String name, PersistenceExceptionTranslator translator) {
+        DataSourceProfile existing = profiles.get(configuration);
+        if (existing != null && (name == null || name.equals(existing.getName()))) {
+            return existing;
+        }
+        Environment environment = configuration.getEnvironment();
+        if (name == null) {
+            name = environment == null ? StatementMetaIndex.DEFAULT_DATA_SOURCE : environment.getId();
+        }
+        if (translator == null && SPRING_JDBC_PRESENT && environment != null && environment.getDataSource() != null) {
+            translator = new MyBatisExceptionTranslator(environment.getDataSource(), true);
+        }
+        SqlLogOverride policyOverride = dataSourcePolicies.getOrDefault(name, SqlLogOverride.NONE);
+        SqlStatistics sqlStatistics = existing == null ? new SqlStatistics() : existing.getSqlStatistics();
+        DataSourceProfile profile = new DataSourceProfile(name, policyOverride, sqlStatistics,
+                new StatementMetaIndex(name, policy.with(policyOverride), sqlStatistics, sqlMetrics, overrides), translator);
+        Map<Configuration, DataSourceProfile> copy = new IdentityHashMap<>(profiles);
+        copy.put(configuration, profile);
+        profiles = copy;
+        log.info("sql data source registered, {}", profile);
+        return profile;
+    }
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
-        Stopwatch stopwatch = Stopwatch.createStarted();
+        if (invocation.getTarget() instanceof Executor) {
+            return interceptExecutor(invocation);
+        }
+        if (invocation.getTarget() instanceof ParameterHandler) {
+            return interceptSetParameters(invocation);
+        }
+        if (invocation.getTarget() instanceof ResultSetHandler) {
+            return interceptResultSets(invocation);
+        }
+        if ("batch".equals(invocation.getMethod().getName())) {
+            return interceptBatch(invocation);
+        }
+        StatementMeta statementMeta = statementMeta(StatementHandlers.getMappedStatement((StatementHandler) invocation.getTarget()));
+        PhaseTracker phaseTracker = PhaseTracker.get();
+        PhaseTracker.Frame frame = phaseTracker.push(statementMeta);
+        long start = System.nanoTime();
         Object result;
+        SqlPhases phases;
         try {
             result = invocation.proceed();
         } catch (Throwable e) {
-            doSendMailIfNecessary(invocation, ExceptionUtil.unwrapThrowable(e));
+            recordError(statementMeta, System.nanoTime() - start, ExceptionUtil.unwrapThrowable(e));
             throw e;
+        } finally {
+            phases = frame.toPhases(System.nanoTime() - start);
+            phaseTracker.pop();
         }
-        long executionTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        if (result instanceof Cursor) {
+            return countingCursor(invocation, statementMeta, phases, start, (Cursor<?>) result);
+        }
+        Object[] args = invocation.getArgs();
+        if (args.length > 1 && args[1] instanceof CountingResultHandler) {
+            CountingResultHandler resultHandler = (CountingResultHandler) args[1];
+            long firstRow = resultHandler.getFirstRowNanoTime();
+            phases = phases.withRows(resultHandler.getRows(), firstRow == 0 ? SqlPhases.UNKNOWN : firstRow - start);
+        }
+        complete(invocation, statementMeta, phases, result);
+        return result;
+    }
+
+    /**
+     * Cursor在打开时只执行了sql, 行是遍历时才读的, 关闭或读完时再记录
+     * 执行耗时是打开cursor的耗时, 映射耗时是之后遍历的耗时
+     */
+    @SuppressWarnings("unchecked")
+    private Cursor<Object> countingCursor(Invocation invocation, StatementMeta statementMeta, SqlPhases opened, long start, Cursor<?> cursor) {
+        return new CountingCursor<>((Cursor<Object>) cursor, (rows, firstRowNanoTime, endNanoTime) -> {
+            long total = endNanoTime - start;
+            SqlPhases phases = new SqlPhases(total, opened.getBindNanos(), opened.getTotalNanos(), total - opened.getTotalNanos(),
+                    opened.getColumnCount(), opened.getFetchSize(), rows, firstRowNanoTime == 0 ? SqlPhases.UNKNOWN : firstRowNanoTime - start);
+            complete(invocation, statementMeta, phases, null);
+        });
+    }
 
-        if (log.isDebugEnabled()) {
-            stopwatch = Stopwatch.createStarted();
+    /**
+     * 执行完成后的统计和打印, sql已经执行成功, 这里的任何异常都只记日志, 不抛给调用方
+     */
+    private void complete(Invocation invocation, StatementMeta statementMeta, SqlPhases phases, Object result) {
+        try {
+            record(invocation, statementMeta, phases, result);
+        } catch (Throwable e) {
+            log.error("sql统计异常", e);
         }
+        print(invocation, statementMeta, phases, result);
+    }
+
+    private void record(Invocation invocation, StatementMeta statementMeta, SqlPhases phases, Object result) {
+        long elapsed = phases.getTotalNanos();
+        statementMeta.getHistogram().record(elapsed);
+        String sql = ((StatementHandler) invocation.getTarget()).getBoundSql().getSql();
+        recordScope(statementMeta, sql, elapsed);
+        long rows = phases.isStreamed() ? phases.getRows() : rows(result);
+        if (fingerprintStats != null) {
+            fingerprintStats.record(statementMeta.getId(), sql, elapsed, rows);
+        }
+        statementMeta.getMetrics().record(elapsed, rows);
+        adviseFetchSize(statementMeta, phases, rows);
+        if (explainer != null && phases.getExecutionTime() >= explainThreshold) {
+            explain(invocation, statementMeta, phases.getExecutionTime());
+        }
+    }
+
+    private void print(Invocation invocation, StatementMeta statementMeta, SqlPhases phases, Object result) {
+        long printStart = System.nanoTime();
         try {
-            sqlPrinter.print(invocation, executionTime, result, defaultPrint);
-        } catch (Exception e) {
+            // 打印器不输出时不采集
+            if (!sqlPrinter.isEnabled(statementMeta)) {
+                return;
+            }
+            if (asyncDispatcher != null) {
+                asyncDispatcher.offer(((AbstractSqlPrinter) sqlPrinter).capture(invocation, statementMeta, phases, result));
+            } else {
+                sqlPrinter.print(invocation, statementMeta, phases, result);
+            }
+        } catch (Throwable e) {
             log.error("打印sql异常", e);
         } finally {
+            long printNanos = System.nanoTime() - printStart;
+            sqlMetrics.recordPrint(printNanos);
             if (log.isDebugEnabled()) {
                 // 有的时候sql特别长, 拼接可能会有性能问题, log下时间
-                log.debug("logSql time {}", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                log.debug("logSql time {}", TimeUnit.NANOSECONDS.toMillis(printNanos));
             }
         }
+    }
+
+    /**
+     * 参数绑定在query/update之前, 先记在当前线程上
+     */
+    private Object interceptSetParameters(Invocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            PhaseTracker.get().bind(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 结果映射计时, 开始前取fetchSize, 列数在mybatis取结果集时顺便记下
+     */
+    private Object interceptResultSets(Invocation invocation) throws Throwable {
+        PhaseTracker.Frame frame = PhaseTracker.get().top();
+        if (frame == null) {
+            return invocation.proceed();
+        }
+        Object[] args = invocation.getArgs();
+        Statement statement = (Statement) args[0];
+        try {
+            frame.fetchSize = statement.getFetchSize();
+        } catch (SQLException | RuntimeException e) {
+            log.debug("获取结果集信息失败", e);
+        }
+        if (sqlPrinter.isEnabled(frame.statementMeta)) {
+            args[0] = ColumnCountingStatement.wrap(statement, frame);
+        }
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            frame.mappingNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * 慢sql提交explain, 指纹已经有执行计划时不采集参数
+     */
+    private void explain(Invocation invocation, StatementMeta statementMeta, long executionTime) {
+        try {
+            StatementHandler stmtHandler = (StatementHandler) invocation.getTarget();
+            String sql = stmtHandler.getBoundSql().getSql();
+            String fingerprint = fingerprintStats != null ? fingerprintStats.fingerprint(sql) : PlaceholderReplacer.fingerprint(sql);
+            if (!explainer.needExplain(fingerprint)) {
+                return;
+            }
+            MappedStatement mappedStatement = StatementHandlers.getMappedStatement(stmtHandler);
+            Object[] parameterValues = ((AbstractSqlPrinter) sqlPrinter).captureParameterValues(stmtHandler);
+            explainer.submit(statementMeta, mappedStatement.getConfiguration().getEnvironment().getDataSource(), sql,
+                    fingerprint, parameterValues, executionTime);
+        } catch (Throwable e) {
+            log.error("提交explain异常", e);
+        }
+    }
+
+    /**
+     * 用驱动默认fetchSize取了很大的结果集时提示一次
+     */
+    private void adviseFetchSize(StatementMeta statementMeta, SqlPhases phases, long rows) {
+        if (largeResultRows <= 0 || rows < largeResultRows || phases.getFetchSize() != 0
+                || !fetchSizeAdvised.add(statementMeta.getId())) {
+            return;
+        }
+        log.warn("{} fetched {} rows with the driver default fetchSize (exec:{}ms, map:{}ms), consider fetchSize=\"{}\" on the statement",
+                statementMeta.getId(), rows, phases.getExecuteMillis(), phases.getMappingMillis(), SUGGESTED_FETCH_SIZE);
+    }
+
+    /**
+     * addBatch只计时并记下前几行参数, 等flush时再汇总打印
+     */
+    private Object interceptBatch(Invocation invocation) throws Throwable {
+        StatementHandler stmtHandler = (StatementHandler) invocation.getTarget();
+        StatementMeta statementMeta = statementMeta(StatementHandlers.getMappedStatement(stmtHandler));
+        PhaseTracker.get().clearPending();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            recordError(statementMeta, System.nanoTime() - start, ExceptionUtil.unwrapThrowable(e));
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        try {
+            String sql = stmtHandler.getBoundSql().getSql();
+            Object[] sample = null;
+            if (sqlPrinter instanceof AbstractSqlPrinter && statementMeta.isPrint()
+                    && batchCollector.needSample(statementMeta, sql) && sqlPrinter.isEnabled(statementMeta)) {
+                sample = ((AbstractSqlPrinter) sqlPrinter).captureParameterValues(stmtHandler);
+            }
+            batchCollector.add(statementMeta, sql, elapsed, sample);
+        } catch (Throwable e) {
+            log.error("记录批量sql异常", e);
+        }
         return result;
     }
 
+    /**
+     * BATCH执行器在flushStatements时真正执行, commit和查询前会在内部flush
+     * 内部flush的结果拿不到, 所以有未flush的记录时先在这里flush一次, 执行器内部再flush时已经没有语句了
+     */
+    private Object interceptExecutor(Invocation invocation) throws Throwable {
+        Object executor = invocation.getTarget();
+        switch (invocation.getMethod().getName()) {
+            case "update":
+                // addBatch记到这个执行器名下
+                Object previous = batchCollector.bind(executor);
+                try {
+                    return invocation.proceed();
+                } finally {
+                    batchCollector.unbind(previous);
+                }
+            case "flushStatements":
+                if (!batchCollector.hasPending(executor)) {
+                    return invocation.proceed();
+                }
+                long start = System.nanoTime();
+                Object result;
+                try {
+                    result = invocation.proceed();
+                } catch (Throwable e) {
+                    abortBatch(executor, System.nanoTime() - start, e);
+                    throw e;
+                }
+                completeBatch(executor, (List<?>) result, System.nanoTime() - start);
+                return result;
+            case "rollback":
+            case "close":
+                batchCollector.clear(executor);
+                return invocation.proceed();
+            default:
+                if (batchCollector.hasPending(executor)) {
+                    flushPending((Executor) executor);
+                }
+                Object[] args = invocation.getArgs();
+                // 自定义ResultHandler包装一层数行数, StatementHandler创建时会拿到包装后的对象
+                if (args.length == 4 && args[3] != null && !(args[3] instanceof CountingResultHandler)) {
+                    args[3] = new CountingResultHandler((ResultHandler<?>) args[3]);
+                }
+                return invocation.proceed();
+        }
+    }
+
+    private void flushPending(Executor executor) throws SQLException {
+        long start = System.nanoTime();
+        List<BatchResult> results;
+        try {
+            results = executor.flushStatements();
+        } catch (SQLException | RuntimeException e) {
+            abortBatch(executor, System.nanoTime() - start, e);
+            throw e;
+        }
+        completeBatch(executor, results, System.nanoTime() - start);
+    }
+
+    /**
+     * 按statement记录耗时并打印汇总, 一次flush每个statement只有一行, 不走异步队列
+     */
+    private void completeBatch(Object executor, List<?> results, long flushNanos) {
+        List<SqlBatchEvent> events;
+        try {
+            events = batchCollector.complete(executor, results, flushNanos);
+        } catch (Throwable e) {
+            log.error("汇总批量sql异常", e);
+            return;
+        }
+        for (SqlBatchEvent event : events) {
+            StatementMeta statementMeta = event.getStatementMeta();
+            try {
+                statementMeta.getHistogram().record(event.getTotalNanos());
+                recordScope(statementMeta, event.getSql(), event.getTotalNanos());
+                if (fingerprintStats != null) {
+                    fingerprintStats.record(statementMeta.getId(), event.getSql(), event.getTotalNanos(), event.getUpdateCount());
+                }
+                statementMeta.getMetrics().record(event.getTotalNanos(), event.getUpdateCount());
+            } catch (Throwable e) {
+                log.error("sql统计异常", e);
+            }
+            long printStart = System.nanoTime();
+            try {
+                if (sqlPrinter.isEnabled(statementMeta)) {
+                    sqlPrinter.printBatch(event);
+                }
+            } catch (Throwable e) {
+                log.error("打印sql异常", e);
+            } finally {
+                sqlMetrics.recordPrint(System.nanoTime() - printStart);
+            }
+        }
+    }
+
+    private void abortBatch(Object executor, long flushNanos, Throwable e) {
+        Throwable unwrapped = ExceptionUtil.unwrapThrowable(e);
+        List<StatementMeta> aborted;
+        try {
+            aborted = batchCollector.abort(executor);
+        } catch (Throwable ex) {
+            log.error("汇总批量sql异常", ex);
+            return;
+        }
+        for (StatementMeta statementMeta : aborted) {
+            recordError(statementMeta, flushNanos, unwrapped);
+        }
+    }
 
+    /**
+     * 记录失败, 异常翻译一次, 指标和告警共用, 出错时只记日志, 调用方抛出的还是原来的异常
+     */
+    private void recordError(StatementMeta statementMeta, long elapsed, Throwable e) {
+        try {
+            statementMeta.getHistogram().recordError(elapsed);
+            Throwable translateException = translate(statementMeta, e);
+            statementMeta.getMetrics().recordError(elapsed, translateException.getClass());
+            alertIfNecessary(statementMeta, translateException);
+        } catch (Throwable ex) {
+            log.error("sql统计异常", ex);
+        }
+    }
+
+    /**
+     * 按statement所属数据源翻译成spring的DataAccessException, 翻译不了返回原异常
+     */
+    private Throwable translate(StatementMeta statementMeta, Throwable e) {
+        DataSourceProfile profile = getDataSourceProfile(statementMeta.getDataSource());
+        if (profile == null || profile.getExceptionTranslator() == null) {
+            return e;
+        }
+        try {
+            Throwable translateException = profile.getExceptionTranslator()
+                    .translateExceptionIfPossible(new PersistenceException(e));
+            return translateException == null ? e : translateException;
+        } catch (Exception ex) {
+            log.warn("翻译异常失败", ex);
+            return e;
+        }
+    }
+
+    /**
+     * 计入当前请求或事务的汇总
+     */
+    private void recordScope(StatementMeta statementMeta, String sql, long elapsed) {
+        if (transactionScope) {
+            SqlScopeTransactionSynchronization.beginIfNecessary(scopeRepeatThreshold);
+        }
+        SqlScope.record(statementMeta, sql, elapsed);
+    }
+
+    /**
+     * 查询返回行数, 更新影响行数
+     */
+    private static long rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return result == null ? 0 : 1;
+    }
+
+    /**
+     * 按总耗时打印指纹top-N
+     */
+    public void dumpFingerprints() {
+        if (fingerprintStats == null) {
+            return;
+        }
+        List<FingerprintSnapshot> top = fingerprintStats.top(fingerprintTopN);
+        if (top.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("sql fingerprint top ").append(top.size()).append(':');
+        for (int i = 0; i < top.size(); i++) {
+            FingerprintSnapshot snapshot = top.get(i);
+            sb.append("\n#").append(i + 1)
+                    .append(" calls:").append(snapshot.getCount())
+                    .append(snapshot.getError() > 0 ? "(±" + snapshot.getError() + ")" : "")
+                    .append(" total:").append(TimeUnit.NANOSECONDS.toMillis(snapshot.getTotalNanos())).append("ms")
+                    .append(" mean:").append(TimeUnit.NANOSECONDS.toMicros(snapshot.getMeanNanos())).append("us")
+                    .append(" max:").append(TimeUnit.NANOSECONDS.toMillis(snapshot.getMaxNanos())).append("ms")
+                    .append(" rows:").append(snapshot.getRows())
+                    .append(' ').append(snapshot.getStatementId())
+                    .append(' ').append(snapshot.getFingerprint());
+        }
+        log.info(sb.toString());
+    }
 
     @Override
     public Object plugin(Object target) {
@@ -95,68 +747,332 @@ public class SqlPrintInterceptor implements Interceptor {
         this.defaultPrint = defaultPrint;
     }
 
+    /**
+     * 全局策略, 各数据源在此基础上覆盖
+     */
+    public SqlLogPolicy getPolicy() {
+        return policy;
+    }
 
-    public Optional<SqlLog> getSqlLog(Invocation invocation) throws ClassNotFoundException {
-        StatementHandler stmtHandler = (StatementHandler) invocation.getTarget();
-        MetaObject metaStmtHandler = SystemMetaObject.forObject(stmtHandler);
-        MappedStatement mappedStatement = (MappedStatement) metaStmtHandler.getValue("delegate.mappedStatement");
-        // 获取方法上注解
-        String fullMapperMethod = mappedStatement.getId();
-        Class<?> mapperClass = getMapperClass(fullMapperMethod);
-        // 目标方法
-        String targetMethodName = getMapperMethodName(fullMapperMethod);
-        // 拿不到参数类型列表, 这里循环下, 正好mybatis不能重载
-        return Arrays.stream(mapperClass.getMethods())
-                .filter(method -> method.getName().equals(targetMethodName))
-                .findFirst()
-                .map(method -> method.getAnnotation(SqlLog.class));
+    public SqlLogOverrides getOverrides() {
+        return overrides;
     }
 
     /**
-     * 发送异常邮件
+     * 运行时修改全局策略, 各数据源按新策略生成新的元数据快照后整体替换, 热路径只读一次volatile
      */
-    private void doSendMailIfNecessary(Invocation invocation, Throwable e) {
-        try {
-            if (getSqlLog(invocation).map(sqlLog -> {
-                // 翻译下异常
-                Throwable translateException = sqlSessionTemplate.getPersistenceExceptionTranslator()
-                        .translateExceptionIfPossible(new PersistenceException(e));
-                if (translateException == null) {
-                    translateException = e;
-                }
-                if (log.isDebugEnabled()) {
-                    log.debug("ignoreExceptionList is {} translateException is {}", Arrays.toString(sqlLog.ignoreExceptionList()),
-                            translateException.getClass().getSimpleName());
-                }
-                Class<? extends Exception>[] ignoreExceptionList = sqlLog.ignoreExceptionList();
-                // 有一个匹配返回
-                for (Class<? extends Exception> ignoreException : ignoreExceptionList) {
-                    if (ignoreException.isAssignableFrom(translateException.getClass())) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("匹配到忽略异常");
-                        }
-                        return false;
-                    }
-                }
-                return true;
-            }).orElse(true)) {
+    public synchronized void updatePolicy(UnaryOperator<SqlLogPolicy> update) {
+        policy = update.apply(policy);
+        defaultPrint = policy.isDefaultPrint();
+        slowThreshold = policy.getSlowThreshold();
+        sampleRate = policy.getSampleRate();
+        reconfigure(profile -> true);
+        log.info("sql log policy updated to {}", policy);
+    }
 
-                // mail
+    /**
+     * 运行时修改statement或mapper上的覆盖配置, 对所有数据源生效
+     */
+    public synchronized void updateOverrides(UnaryOperator<SqlLogOverrides> update) {
+        overrides = update.apply(overrides);
+        reconfigure(profile -> true);
+        log.info("sql log overrides updated to {}", overrides);
+    }
+
+    /**
+     * 运行时修改数据源级别的策略, 还没注册的数据源注册时生效
+     * @param dataSource SqlSessionFactory的bean名
+     */
+    public synchronized void updateDataSourcePolicy(String dataSource, UnaryOperator<SqlLogOverride> update) {
+        Map<String, SqlLogOverride> copy = new HashMap<>(dataSourcePolicies);
+        SqlLogOverride policyOverride = update.apply(copy.getOrDefault(dataSource, SqlLogOverride.NONE));
+        if (policyOverride == null || policyOverride.isEmpty()) {
+            copy.remove(dataSource);
+        } else {
+            copy.put(dataSource, policyOverride);
+        }
+        dataSourcePolicies = copy;
+        reconfigure(profile -> profile.getName().equals(dataSource));
+        log.info("sql log policy of {} updated to {}", dataSource, policyOverride);
+    }
+
+    private void reconfigure(Predicate<DataSourceProfile> filter) {
+        Map<Configuration, DataSourceProfile> copy = new IdentityHashMap<>(profiles);
+        copy.replaceAll((configuration, profile) -> filter.test(profile)
+                ? profile.reconfigure(policy, dataSourcePolicies.getOrDefault(profile.getName(), SqlLogOverride.NONE), overrides)
+                : profile);
+        profiles = copy;
+    }
+
+    /**
+     * 已注册的数据源
+     */
+    public Collection<DataSourceProfile> getDataSourceProfiles() {
+        return Collections.unmodifiableCollection(profiles.values());
+    }
+
+    /**
+     * 按名字找数据源, 没有返回null
+     */
+    public DataSourceProfile getDataSourceProfile(String dataSource) {
+        for (DataSourceProfile profile : profiles.values()) {
+            if (profile.getName().equals(dataSource)) {
+                return profile;
             }
-        } catch (Exception ex) {
-            log.error("发送邮件逻辑异常", ex);
         }
+        return null;
     }
 
+    public Map<String, SqlLogOverride> getDataSourcePolicies() {
+        return Collections.unmodifiableMap(dataSourcePolicies);
+    }
 
-    private Class<?> getMapperClass(String fullMapperMethod) throws ClassNotFoundException {
-        String mapperClassName = fullMapperMethod.substring(0, fullMapperMethod.lastIndexOf("."));
-        return Class.forName(mapperClassName);
+    public void setDataSourcePolicies(Map<String, SqlLogOverride> dataSourcePolicies) {
+        this.dataSourcePolicies = new HashMap<>(dataSourcePolicies);
     }
 
-    private String getMapperMethodName(String fullMapperMethod) {
-        return fullMapperMethod.substring(fullMapperMethod.lastIndexOf(".") + 1);
+    public boolean isAsync() {
+        return async;
     }
 
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public int getOverflowSampleRate() {
+        return overflowSampleRate;
+    }
+
+    public void setOverflowSampleRate(int overflowSampleRate) {
+        this.overflowSampleRate = overflowSampleRate;
+    }
+
+    public long getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(long slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getMaxLinesPerSecond() {
+        return maxLinesPerSecond;
+    }
+
+    public void setMaxLinesPerSecond(int maxLinesPerSecond) {
+        this.maxLinesPerSecond = maxLinesPerSecond;
+    }
+
+    public int getStatementMaxLinesPerSecond() {
+        return statementMaxLinesPerSecond;
+    }
+
+    public void setStatementMaxLinesPerSecond(int statementMaxLinesPerSecond) {
+        this.statementMaxLinesPerSecond = statementMaxLinesPerSecond;
+    }
+
+    public int getParameterMaxLength() {
+        return parameterMaxLength;
+    }
+
+    public void setParameterMaxLength(int parameterMaxLength) {
+        this.parameterMaxLength = parameterMaxLength;
+    }
+
+    public int getMaxSqlLength() {
+        return maxSqlLength;
+    }
+
+    public void setMaxSqlLength(int maxSqlLength) {
+        this.maxSqlLength = maxSqlLength;
+    }
+
+    public boolean isCollapseRepeated() {
+        return collapseRepeated;
+    }
+
+    public void setCollapseRepeated(boolean collapseRepeated) {
+        this.collapseRepeated = collapseRepeated;
+    }
+
+    public int getTemplateCacheSize() {
+        return templateCacheSize;
+    }
+
+    public void setTemplateCacheSize(int templateCacheSize) {
+        this.templateCacheSize = templateCacheSize;
+    }
+
+    public int getFingerprintCapacity() {
+        return fingerprintCapacity;
+    }
+
+    public void setFingerprintCapacity(int fingerprintCapacity) {
+        this.fingerprintCapacity = fingerprintCapacity;
+    }
+
+    public int getFingerprintTopN() {
+        return fingerprintTopN;
+    }
+
+    public void setFingerprintTopN(int fingerprintTopN) {
+        this.fingerprintTopN = fingerprintTopN;
+    }
+
+    public long getFingerprintDumpInterval() {
+        return fingerprintDumpInterval;
+    }
+
+    public void setFingerprintDumpInterval(long fingerprintDumpInterval) {
+        this.fingerprintDumpInterval = fingerprintDumpInterval;
+    }
+
+    public SqlMetrics getSqlMetrics() {
+        return sqlMetrics;
+    }
+
+    public boolean isRequestScope() {
+        return requestScope;
+    }
+
+    public void setRequestScope(boolean requestScope) {
+        this.requestScope = requestScope;
+    }
+
+    public boolean isTransactionScope() {
+        return transactionScope;
+    }
+
+    public void setTransactionScope(boolean transactionScope) {
+        this.transactionScope = transactionScope;
+    }
+
+    public int getScopeRepeatThreshold() {
+        return scopeRepeatThreshold;
+    }
+
+    public void setScopeRepeatThreshold(int scopeRepeatThreshold) {
+        this.scopeRepeatThreshold = scopeRepeatThreshold;
+    }
+
+    public int getLargeResultRows() {
+        return largeResultRows;
+    }
+
+    public void setLargeResultRows(int largeResultRows) {
+        this.largeResultRows = largeResultRows;
+    }
+
+    public long getAlertWindow() {
+        return alertWindow;
+    }
+
+    public void setAlertWindow(long alertWindow) {
+        this.alertWindow = alertWindow;
+    }
+
+    public int getAlertCapacity() {
+        return alertCapacity;
+    }
+
+    public void setAlertCapacity(int alertCapacity) {
+        this.alertCapacity = alertCapacity;
+    }
+
+    public long getExplainThreshold() {
+        return explainThreshold;
+    }
+
+    public void setExplainThreshold(long explainThreshold) {
+        this.explainThreshold = explainThreshold;
+    }
+
+    public long getExplainTtl() {
+        return explainTtl;
+    }
+
+    public void setExplainTtl(long explainTtl) {
+        this.explainTtl = explainTtl;
+    }
+
+    /**
+     * 慢sql执行计划, 未开启时返回null
+     */
+    public SqlExplainer getExplainer() {
+        return explainer;
+    }
+
+    /**
+     * 告警分发器, 用于查看发送和丢弃计数, 关闭告警时返回null
+     */
+    public SqlAlertDispatcher getAlertDispatcher() {
+        return alertDispatcher;
+    }
+
+    /**
+     * 按sql指纹汇总的统计, fingerprintCapacity小于等于0时返回null
+     */
+    public SqlFingerprintStats getFingerprintStats() {
+        return fingerprintStats;
+    }
+
+    /**
+     * 异步分发器, 用于查看队列长度和丢弃计数, 同步模式返回null
+     */
+    public AsyncSqlDispatcher getAsyncDispatcher() {
+        return asyncDispatcher;
+    }
+
+    public SqlPrinter getSqlPrinter() {
+        return sqlPrinter;
+    }
+
+    /**
+     * 不用spring时手动设置, 要在afterPropertiesSet之前
+     */
+    public void setSqlPrinter(SqlPrinter sqlPrinter) {
+        this.sqlPrinter = sqlPrinter;
+    }
+
+
+    /**
+     * 不在忽略列表中的异常交给告警队列, 不阻塞当前线程
+     * @param translateException 翻译后的异常
+     */
+    private void alertIfNecessary(StatementMeta statementMeta, Throwable translateException) {
+        if (statementMeta.isIgnored(translateException)) {
+            if (log.isDebugEnabled()) {
+                log.debug("{} 匹配到忽略异常 {}", statementMeta.getId(), translateException.getClass().getSimpleName());
+            }
+            return;
+        }
+        if (alertDispatcher != null) {
+            alertDispatcher.report(statementMeta.getId(), translateException);
+        }
+    }
 
-}
\ No newline at end of file
+}
@@ -8,14 +8,51 @@ import org.apache.ibatis.plugin.Invocation;
  */
 public interface SqlPrinter {
 
+    /**
+     * 是否会输出, 返回false时拦截器不计时也不采集参数
+     * @param statementMeta statement元数据
+     * @return 是否输出
+     */
+    default boolean isEnabled(StatementMeta statementMeta) {
+        return true;
+    }
+
     /**
      * 打印sql
      * @param invocation 拦截到打的invocation
+     * @param statementMeta statement元数据, 包含是否打印
      * @param executionTime 执行时间
      * @param result 拿到的结果
-     * @param defaultPrint 是否默认打印
      * @throws Exception .
      */
-    void print(Invocation invocation, long executionTime, Object result, boolean defaultPrint) throws Exception;
+    void print(Invocation invocation, StatementMeta statementMeta, long executionTime, Object result) throws Exception;
+
+    /**
+     * 打印sql, 带各阶段耗时, 拦截器调用这个方法, 默认只用总耗时
+     * @param invocation 拦截到打的invocation
+     * @param statementMeta statement元数据, 包含是否打印
+     * @param phases 参数绑定, 执行, 结果映射的耗时和列数
+     * @param result 拿到的结果
+     * @throws Exception .
+     */
+    default void print(Invocation invocation, StatementMeta statementMeta, SqlPhases phases, Object result) throws Exception {
+        print(invocation, statementMeta, phases.getExecutionTime(), result);
+    }
+
+    /**
+     * 打印BATCH执行器一次flush的汇总, 每个statement调用一次, 默认不打印
+     * @param event 批量汇总
+     * @throws Exception .
+     */
+    default void printBatch(SqlBatchEvent event) throws Exception {
+    }
+
+    /**
+     * 打印慢sql的执行计划, 在后台线程上调用, 每个sql指纹在缓存有效期内最多一次, 默认不打印
+     * @param event 执行计划
+     * @throws Exception .
+     */
+    default void printExplain(SqlExplainEvent event) throws Exception {
+    }
 
 }
@@ -0,0 +1,58 @@
+package log.mybatis.sql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 各statement的耗时直方图, 用来找慢mapper
+ */
+public class SqlStatistics {
+
+    /**
+     * key : statement id
+     */
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>(256);
+
+    /**
+     * 获取直方图, 没有就创建, 解析StatementMeta时调用一次, 热路径上直接用StatementMeta持有的引用
+     */
+    public LatencyHistogram histogram(String statementId) {
+        return histograms.computeIfAbsent(statementId, id -> new LatencyHistogram());
+    }
+
+    /**
+     * 单个statement的统计
+     */
+    public LatencySnapshot snapshot(String statementId) {
+        LatencyHistogram histogram = histograms.get(statementId);
+        return histogram == null ? null : histogram.snapshot(statementId);
+    }
+
+    /**
+     * 所有执行过的statement, 按p99倒序
+     */
+    public List<LatencySnapshot> snapshots() {
+        List<LatencySnapshot> snapshots = new ArrayList<>(histograms.size());
+        histograms.forEach((id, histogram) -> {
+            if (histogram.getCount() > 0) {
+                snapshots.add(histogram.snapshot(id));
+            }
+        });
+        snapshots.sort(Comparator.comparingLong(LatencySnapshot::getP99Nanos).reversed());
+        return snapshots;
+    }
+
+    /**
+     * 按p99取最慢的前n个
+     */
+    public List<LatencySnapshot> slowest(int n) {
+        List<LatencySnapshot> snapshots = snapshots();
+        return snapshots.size() <= n ? snapshots : new ArrayList<>(snapshots.subList(0, n));
+    }
+
+}
@@ -0,0 +1,284 @@
+package log.mybatis.sql;
+
+import log.mybatis.sql.parameter.ParameterRendererRegistry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 预编译的sql模板, 空白已压缩, 按?切分成字面量片段, 渲染时只需要拼接片段和参数
+ * 编译时顺便找出重复的片段, 比如批量插入的VALUES (...)和很长的IN列表, 渲染时可以折叠
+ */
+public final class SqlTemplate {
+
+    /**
+     * 重复多少次以上才折叠
+     */
+    static final int COLLAPSE_MIN_UNITS = 10;
+
+    /**
+     * 折叠时保留前面几组, 另外总是保留最后一组
+     */
+    static final int COLLAPSE_KEEP_UNITS = 3;
+
+    private static final String COLLAPSED_PREFIX = "/* ...(+";
+
+    private static final String COLLAPSED_SUFFIX = " more) */ ";
+
+    /**
+     * 最多识别每组多少个占位符
+     */
+    private static final int MAX_PERIOD = 64;
+
+    /**
+     * 原始sql
+     */
+    private final String sql;
+
+    /**
+     * 字面量片段, 长度为占位符个数 + 1, 相同内容的片段是同一个对象
+     */
+    private final String[] segments;
+
+    private final int literalLength;
+
+    /**
+     * 重复段的第一个占位符下标
+     */
+    private final int[] runStarts;
+
+    /**
+     * 重复段每组的占位符个数
+     */
+    private final int[] runPeriods;
+
+    /**
+     * 重复段的组数
+     */
+    private final int[] runUnits;
+
+    /**
+     * sql指纹, 第一次用到时生成, 并发时最多多算几次
+     */
+    private volatile String fingerprint;
+
+    SqlTemplate(String sql, String[] segments) {
+        this.sql = sql;
+        this.segments = segments;
+        Map<String, String> canonical = new HashMap<>();
+        int length = 0;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = canonical.computeIfAbsent(segments[i], segment -> segment);
+            length += segments[i].length();
+        }
+        this.literalLength = length;
+
+        List<int[]> runs = findRuns(segments);
+        this.runStarts = new int[runs.size()];
+        this.runPeriods = new int[runs.size()];
+        this.runUnits = new int[runs.size()];
+        for (int i = 0; i < runs.size(); i++) {
+            runStarts[i] = runs.get(i)[0];
+            runPeriods[i] = runs.get(i)[1];
+            runUnits[i] = runs.get(i)[2];
+        }
+    }
+
+    /**
+     * 渲染sql
+     * @param parameters 按顺序对应?的参数, 参数不够时保留?
+     */
+    public String render(List<String> parameters) {
+        int parameterLen = 0;
+        for (String parameter : parameters) {
+            parameterLen += parameter.length();
+        }
+        StringBuilder out = new StringBuilder(literalLength + parameterLen);
+        render(parameters, out);
+        return out.toString();
+    }
+
+    /**
+     * 渲染sql, 结果追加到out
+     */
+    public void render(List<String> parameters, StringBuilder out) {
+        out.append(segments[0]);
+        int paraSize = parameters.size();
+        for (int i = 1; i < segments.length; i++) {
+            out.append(i - 1 < paraSize ? parameters.get(i - 1) : "?");
+            out.append(segments[i]);
+        }
+    }
+
+    /**
+     * 渲染sql, 参数值直接写进out, 不生成中间字符串
+     * @param parameterValues 按顺序对应?的参数值, 不够时保留?
+     */
+    public void render(Object[] parameterValues, ParameterRendererRegistry registry, StringBuilder out) {
+        render(parameterValues, registry, out, -1, false);
+    }
+
+    /**
+     * 有长度上限的渲染, 超过上限就停止并标出原始大小, 不会再做多余的拼接
+     * @param parameterValues 按顺序对应?的参数值, 不够时保留?
+     * @param maxLength 最多输出的字符数, 小于等于0不限制
+     * @param collapse 是否折叠重复的VALUES和IN列表
+     */
+    public void render(Object[] parameterValues, ParameterRendererRegistry registry, StringBuilder out, int maxLength, boolean collapse) {
+        int start = out.length();
+        int limit = maxLength > 0 ? start + maxLength : Integer.MAX_VALUE;
+        int placeholders = segments.length - 1;
+        out.ensureCapacity(start + Math.min(maxLength > 0 ? maxLength : Integer.MAX_VALUE, literalLength + placeholders * 8));
+        if (!appendSegment(out, segments[0], limit)) {
+            appendTruncated(out, parameterValues.length);
+            return;
+        }
+        int runInx = 0;
+        int i = 0;
+        while (i < placeholders) {
+            if (collapse && runInx < runStarts.length && i == runStarts[runInx]) {
+                int keepEnd = i + COLLAPSE_KEEP_UNITS * runPeriods[runInx];
+                for (; i < keepEnd; i++) {
+                    if (!appendParameter(parameterValues, i, registry, out, limit)
+                            || !appendSegment(out, segments[i + 1], limit)) {
+                        appendTruncated(out, parameterValues.length);
+                        return;
+                    }
+                }
+                int skipped = runUnits[runInx] - COLLAPSE_KEEP_UNITS - 1;
+                if (!appendCollapsed(out, skipped, limit)) {
+                    appendTruncated(out, parameterValues.length);
+                    return;
+                }
+                // 跳到最后一组
+                i = runStarts[runInx] + (runUnits[runInx] - 1) * runPeriods[runInx];
+                runInx++;
+                continue;
+            }
+            if (!appendParameter(parameterValues, i, registry, out, limit)
+                    || !appendSegment(out, segments[i + 1], limit)) {
+                appendTruncated(out, parameterValues.length);
+                return;
+            }
+            i++;
+        }
+    }
+
+    private static boolean appendParameter(Object[] parameterValues, int inx, ParameterRendererRegistry registry, StringBuilder out, int limit) {
+        if (out.length() >= limit) {
+            return false;
+        }
+        if (inx < parameterValues.length) {
+            registry.render(parameterValues[inx], out, limit == Integer.MAX_VALUE ? -1 : limit - out.length());
+        } else {
+            out.append('?');
+        }
+        return true;
+    }
+
+    private static boolean appendSegment(StringBuilder out, String segment, int limit) {
+        int remaining = limit - out.length();
+        if (remaining < segment.length()) {
+            if (remaining > 0) {
+                out.append(segment, 0, remaining);
+            }
+            return false;
+        }
+        out.append(segment);
+        return true;
+    }
+
+    /**
+     * 折叠标记放不下时不写, 按截断处理
+     */
+    private static boolean appendCollapsed(StringBuilder out, int skipped, int limit) {
+        int len = COLLAPSED_PREFIX.length() + stringSize(skipped) + COLLAPSED_SUFFIX.length();
+        if (limit - out.length() < len) {
+            return false;
+        }
+        out.append(COLLAPSED_PREFIX).append(skipped).append(COLLAPSED_SUFFIX);
+        return true;
+    }
+
+    private static int stringSize(int value) {
+        int size = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            size++;
+        }
+        return size;
+    }
+
+    private void appendTruncated(StringBuilder out, int parameterCount) {
+        out.append("... /* truncated, original sql ").append(sql.length())
+                .append(" chars, ").append(parameterCount).append(" parameters */");
+    }
+
+    /**
+     * 找重复段, 占位符i前后的片段是segments[i]和segments[i + 1]
+     * 一段重复组的内部片段按组长度呈周期, 比如IN列表是", "重复, 三列的VALUES是", ", ", ", "), ("重复
+     * 片段已经去重, 直接比较引用
+     * @return [第一个占位符下标, 每组占位符个数, 组数]
+     */
+    private static List<int[]> findRuns(String[] segments) {
+        List<int[]> runs = new ArrayList<>();
+        int placeholders = segments.length - 1;
+        // x是内部片段下标, 对应它前面的占位符x - 1
+        int x = 1;
+        while (x < placeholders) {
+            int bestPeriod = 0;
+            int bestUnits = 0;
+            for (int p = 1; p <= MAX_PERIOD && x + p < segments.length; p++) {
+                // 已经找到够长的重复段时, 它的整数倍不会更长
+                if (segments[x] != segments[x + p]
+                        || (bestUnits >= COLLAPSE_MIN_UNITS && p % bestPeriod == 0)) {
+                    continue;
+                }
+                int len = 0;
+                while (x + len + p < placeholders && segments[x + len] == segments[x + len + p]) {
+                    len++;
+                }
+                // 内部片段共len + p个, 每组p个片段, 最后一组少一个分隔符
+                int units = (len + p + 1) / p;
+                if (units * p > bestUnits * bestPeriod) {
+                    bestPeriod = p;
+                    bestUnits = units;
+                }
+            }
+            if (bestUnits >= COLLAPSE_MIN_UNITS) {
+                runs.add(new int[]{x - 1, bestPeriod, bestUnits});
+                x += bestUnits * bestPeriod;
+            } else {
+                x++;
+            }
+        }
+        return runs;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * sql指纹, 同一个模板只生成一次
+     */
+    public String getFingerprint() {
+        String result = fingerprint;
+        if (result == null) {
+            result = PlaceholderReplacer.fingerprint(sql);
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * 占位符个数
+     */
+    public int getPlaceholderCount() {
+        return segments.length - 1;
+    }
+
+}
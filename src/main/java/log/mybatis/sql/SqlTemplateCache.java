@@ -0,0 +1,114 @@
+package log.mybatis.sql;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+import java.util.Objects;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * sql模板缓存, key是statement id + sql
+ * 动态sql同一个statement会有很多变体, 按sql字符数淘汰, 几条foreach拼出来的大sql不会占住大块内存
+ * 超过MAX_CACHED_SQL_LENGTH的sql不进缓存, 每次现编译, 和渲染长度上限一起保证单条sql的内存有上限
+ */
+public class SqlTemplateCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    /**
+     * 按每条平均多少字符把条数折算成总字符数
+     */
+    static final long AVERAGE_SQL_LENGTH = 1024;
+
+    /**
+     * 超过这个长度的sql不缓存
+     */
+    public static final int MAX_CACHED_SQL_LENGTH = 16 * 1024;
+
+    private final long maximumWeight;
+
+    private final LoadingCache<TemplateKey, SqlTemplate> cache;
+
+    /**
+     * @param maximumSize 按平均每条AVERAGE_SQL_LENGTH个字符折算成缓存的总字符数
+     */
+    public SqlTemplateCache(int maximumSize) {
+        this.maximumWeight = Math.max(maximumSize, 0) * AVERAGE_SQL_LENGTH;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                // 模板里保留了原始sql, 再加上拆开的字面量, 大约是sql长度的两倍
+                .weigher((TemplateKey key, SqlTemplate template) -> key.sql.length() * 2)
+                .recordStats()
+                .build(new CacheLoader<TemplateKey, SqlTemplate>() {
+                    @Override
+                    public SqlTemplate load(TemplateKey key) {
+                        return PlaceholderReplacer.compile(key.sql);
+                    }
+                });
+    }
+
+    /**
+     * 获取模板, 没有就编译
+     */
+    public SqlTemplate get(String statementId, String sql) {
+        if (sql.length() > MAX_CACHED_SQL_LENGTH) {
+            return PlaceholderReplacer.compile(sql);
+        }
+        return cache.getUnchecked(new TemplateKey(statementId, sql));
+    }
+
+    /**
+     * 命中, 未命中, 淘汰次数
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 缓存的sql总字符数的上限
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    private static final class TemplateKey {
+
+        private final String statementId;
+
+        private final String sql;
+
+        private final int hash;
+
+        TemplateKey(String statementId, String sql) {
+            this.statementId = statementId;
+            this.sql = sql;
+            this.hash = 31 * statementId.hashCode() + sql.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey that = (TemplateKey) o;
+            // 静态sql每次拿到的是同一个String, equals里先比较引用
+            return hash == that.hash && statementId.equals(that.statementId) && Objects.equals(sql, that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
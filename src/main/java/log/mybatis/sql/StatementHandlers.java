@@ -0,0 +1,55 @@
+package log.mybatis.sql;
+
+import org.apache.ibatis.executor.statement.BaseStatementHandler;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+import java.lang.reflect.Field;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 直接从StatementHandler拿MappedStatement, 字段只查找一次, 不走MetaObject
+ * BoundSql和参数对象用StatementHandler.getBoundSql()即可
+ */
+public final class StatementHandlers {
+
+    private static final Field DELEGATE_FIELD = findField(RoutingStatementHandler.class, "delegate");
+
+    private static final Field MAPPED_STATEMENT_FIELD = findField(BaseStatementHandler.class, "mappedStatement");
+
+    private StatementHandlers() {
+    }
+
+    /**
+     * 获取MappedStatement
+     */
+    public static MappedStatement getMappedStatement(StatementHandler stmtHandler) {
+        StatementHandler handler = stmtHandler;
+        try {
+            if (handler instanceof RoutingStatementHandler && DELEGATE_FIELD != null) {
+                handler = (StatementHandler) DELEGATE_FIELD.get(handler);
+            }
+            if (handler instanceof BaseStatementHandler && MAPPED_STATEMENT_FIELD != null) {
+                return (MappedStatement) MAPPED_STATEMENT_FIELD.get(handler);
+            }
+        } catch (IllegalAccessException e) {
+            // 不会发生, 字段已经setAccessible
+        }
+        // 被其他插件代理过或者mybatis版本不一致时退回MetaObject
+        return (MappedStatement) SystemMetaObject.forObject(stmtHandler).getValue("delegate.mappedStatement");
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException | SecurityException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+package log.mybatis.sql;
+
+import log.mybatis.sql.metrics.StatementMetrics;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * statement的元数据, 启动时解析一次, 之后只读
+ */
+public final class StatementMeta {
+
+    private static final Class<?>[] NO_EXCEPTION = new Class<?>[0];
+
+    /**
+     * statement id, mapper全限定名
+     */
+    private final String id;
+
+    /**
+     * 所属数据源, SqlSessionFactory的bean名
+     */
+    private final String dataSource;
+
+    /**
+     * mapper接口, 纯xml的namespace可能没有对应的类
+     */
+    private final Class<?> mapperClass;
+
+    /**
+     * mapper方法, 可能为null
+     */
+    private final Method mapperMethod;
+
+    /**
+     * 生效的注解, 方法上优先, 其次是类上
+     */
+    private final SqlLog sqlLog;
+
+    /**
+     * 是否打印sql
+     */
+    private final boolean print;
+
+    /**
+     * 忽略的异常
+     */
+    private final Class<?>[] ignoreExceptions;
+
+    /**
+     * 异常类型是否忽略的缓存, 出错时不用每次遍历继承关系
+     */
+    private final Map<Class<?>, Boolean> ignoredTypes = new ConcurrentHashMap<>(4);
+
+    /**
+     * 耗时直方图, 热路径直接记录, 不用再查map
+     */
+    private final LatencyHistogram histogram;
+
+    /**
+     * 对外输出的指标, 和直方图一样启动时创建好
+     */
+    private final StatementMetrics metrics;
+
+    /**
+     * 运行时覆盖, 没有为NONE
+     */
+    private final SqlLogOverride override;
+
+    /**
+     * 慢sql阈值, 毫秒, 小于0不开启
+     */
+    private final long slowThreshold;
+
+    /**
+     * 非慢sql的采样率
+     */
+    private final double sampleRate;
+
+    /**
+     * statement级别的限流, 不限制为null
+     */
+    private final TokenBucket rateLimiter;
+
+    /**
+     * 渲染后sql最大长度, 小于等于0不限制
+     */
+    private final int maxSqlLength;
+
+    /**
+     * 是否折叠重复的VALUES和IN列表
+     */
+    private final boolean collapseRepeated;
+
+    /**
+     * 被采样或限流丢掉的行数
+     */
+    private final LongAdder suppressed = new LongAdder();
+
+    StatementMeta(String id, Class<?> mapperClass, Method mapperMethod, SqlLog sqlLog, SqlLogPolicy policy, LatencyHistogram histogram,
+                  StatementMetrics metrics, SqlLogOverride override, String dataSource) {
+        this.id = id;
+        this.dataSource = dataSource;
+        this.mapperClass = mapperClass;
+        this.mapperMethod = mapperMethod;
+        this.sqlLog = sqlLog;
+        this.histogram = histogram;
+        this.metrics = metrics;
+        this.override = override;
+        this.collapseRepeated = policy.isCollapseRepeated();
+        // 运行时覆盖优先, 其次是注解, 注解上小于0的项按全局
+        boolean print;
+        long slowThreshold;
+        double sampleRate;
+        if (sqlLog == null) {
+            print = policy.isDefaultPrint();
+            this.ignoreExceptions = NO_EXCEPTION;
+            slowThreshold = policy.getSlowThreshold();
+            sampleRate = policy.getSampleRate();
+            this.rateLimiter = newRateLimiter(policy.getStatementMaxLinesPerSecond());
+            this.maxSqlLength = policy.getMaxSqlLength();
+        } else {
+            print = sqlLog.print();
+            this.ignoreExceptions = sqlLog.ignoreExceptionList().clone();
+            slowThreshold = sqlLog.slowThreshold() < 0 ? policy.getSlowThreshold() : sqlLog.slowThreshold();
+            sampleRate = sqlLog.sampleRate() < 0 ? policy.getSampleRate() : sqlLog.sampleRate();
+            this.rateLimiter = newRateLimiter(sqlLog.maxLinesPerSecond() < 0
+                    ? policy.getStatementMaxLinesPerSecond() : sqlLog.maxLinesPerSecond());
+            this.maxSqlLength = sqlLog.maxSqlLength() < 0 ? policy.getMaxSqlLength() : sqlLog.maxSqlLength();
+        }
+        this.print = override.getPrint() != null ? override.getPrint() : print;
+        this.slowThreshold = override.getSlowThreshold() != null ? override.getSlowThreshold() : slowThreshold;
+        this.sampleRate = override.getSampleRate() != null ? override.getSampleRate() : sampleRate;
+    }
+
+    /**
+     * 按新的全局策略和覆盖重新生成, 注解和统计沿用, 不用再反射
+     */
+    StatementMeta reconfigure(SqlLogPolicy policy, SqlLogOverride override) {
+        return new StatementMeta(id, mapperClass, mapperMethod, sqlLog, policy, histogram, metrics, override, dataSource);
+    }
+
+    private static TokenBucket newRateLimiter(int maxLinesPerSecond) {
+        return maxLinesPerSecond > 0 ? new TokenBucket(maxLinesPerSecond) : null;
+    }
+
+    /**
+     * 异常是否在忽略列表中
+     * @param translateException 翻译后的异常
+     */
+    public boolean isIgnored(Throwable translateException) {
+        if (ignoreExceptions.length == 0) {
+            return false;
+        }
+        return ignoredTypes.computeIfAbsent(translateException.getClass(), type -> {
+            for (Class<?> ignoreException : ignoreExceptions) {
+                if (ignoreException.isAssignableFrom(type)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * mapper方法名
+     */
+    public String getMethodName() {
+        return id.substring(id.lastIndexOf('.') + 1);
+    }
+
+    public Class<?> getMapperClass() {
+        return mapperClass;
+    }
+
+    public Method getMapperMethod() {
+        return mapperMethod;
+    }
+
+    public SqlLog getSqlLog() {
+        return sqlLog;
+    }
+
+    public boolean isPrint() {
+        return print;
+    }
+
+    public Class<?>[] getIgnoreExceptions() {
+        return ignoreExceptions.clone();
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public StatementMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SqlLogOverride getOverride() {
+        return override;
+    }
+
+    public long getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public TokenBucket getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public int getMaxSqlLength() {
+        return maxSqlLength;
+    }
+
+    public boolean isCollapseRepeated() {
+        return collapseRepeated;
+    }
+
+    public LongAdder getSuppressed() {
+        return suppressed;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementMeta{id='" + id + "', print=" + print + '}';
+    }
+
+}
@@ -0,0 +1,151 @@
+package log.mybatis.sql;
+
+import log.mybatis.sql.metrics.SqlMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * statement元数据索引, 启动时并行构建, 运行时遇到没见过的statement再补
+ */
+@Slf4j
+public class StatementMetaIndex {
+
+    public static final String DEFAULT_DATA_SOURCE = "default";
+
+    /**
+     * key : statement id
+     */
+    private final Map<String, StatementMeta> index = new ConcurrentHashMap<>(256);
+
+    private final SqlLogPolicy policy;
+
+    private final SqlStatistics sqlStatistics;
+
+    private final SqlMetrics sqlMetrics;
+
+    private final SqlLogOverrides overrides;
+
+    /**
+     * 所属数据源
+     */
+    private final String dataSource;
+
+    public StatementMetaIndex(SqlLogPolicy policy, SqlStatistics sqlStatistics) {
+        this(DEFAULT_DATA_SOURCE, policy, sqlStatistics, SqlMetrics.NOOP, SqlLogOverrides.EMPTY);
+    }
+
+    public StatementMetaIndex(String dataSource, SqlLogPolicy policy, SqlStatistics sqlStatistics, SqlMetrics sqlMetrics,
+                              SqlLogOverrides overrides) {
+        this.dataSource = dataSource;
+        this.policy = policy;
+        this.sqlStatistics = sqlStatistics;
+        this.sqlMetrics = sqlMetrics;
+        this.overrides = overrides;
+    }
+
+    /**
+     * 获取元数据, 没有就解析
+     */
+    public StatementMeta get(MappedStatement mappedStatement) {
+        StatementMeta meta = index.get(mappedStatement.getId());
+        if (meta != null) {
+            return meta;
+        }
+        return index.computeIfAbsent(mappedStatement.getId(), this::resolve);
+    }
+
+    /**
+     * 按statement id查找已解析的元数据, 没有返回null
+     */
+    public StatementMeta find(String statementId) {
+        return index.get(statementId);
+    }
+
+    /**
+     * 批量构建
+     * @param mappedStatements Configuration.getMappedStatements(), 短名冲突时里面会混着Ambiguity, 需要过滤
+     */
+    public void build(Collection<?> mappedStatements) {
+        long start = System.currentTimeMillis();
+        mappedStatements.parallelStream()
+                .filter(MappedStatement.class::isInstance)
+                .map(ms -> ((MappedStatement) ms).getId())
+                .distinct()
+                .forEach(id -> index.computeIfAbsent(id, this::resolve));
+        log.info("statement meta index of {} built, size = {}, {}ms", dataSource, index.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 按新配置复制一份, 已解析的statement直接重新计算, 不用再反射
+     * 构建期间旧索引上新增的statement会在新索引上第一次访问时解析
+     */
+    public StatementMetaIndex reconfigure(SqlLogPolicy policy, SqlLogOverrides overrides) {
+        StatementMetaIndex copy = new StatementMetaIndex(dataSource, policy, sqlStatistics, sqlMetrics, overrides);
+        index.forEach((id, meta) -> copy.index.put(id, meta.reconfigure(policy, overrides.find(id))));
+        return copy;
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    public SqlLogPolicy getPolicy() {
+        return policy;
+    }
+
+    public SqlLogOverrides getOverrides() {
+        return overrides;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 获取方法或者类上的sqlLog注解, 判断是否打sql
+     */
+    private StatementMeta resolve(String fullMapperMethod) {
+        int inx = fullMapperMethod.lastIndexOf('.');
+        if (inx < 0) {
+            return new StatementMeta(fullMapperMethod, null, null, null, policy, sqlStatistics.histogram(fullMapperMethod),
+                sqlMetrics.statement(dataSource, fullMapperMethod), overrides.find(fullMapperMethod), dataSource);
+        }
+        Class<?> mapperClass;
+        try {
+            mapperClass = Resources.classForName(fullMapperMethod.substring(0, inx));
+        } catch (ClassNotFoundException e) {
+            // 纯xml的namespace
+            if (log.isDebugEnabled()) {
+                log.debug("mapper class of {} not found", fullMapperMethod);
+            }
+            return new StatementMeta(fullMapperMethod, null, null, null, policy, sqlStatistics.histogram(fullMapperMethod),
+                sqlMetrics.statement(dataSource, fullMapperMethod), overrides.find(fullMapperMethod), dataSource);
+        }
+        // 目标方法
+        String targetMethodName = fullMapperMethod.substring(inx + 1);
+        // 拿不到参数类型列表, 这里循环下, 正好mybatis不能重载
+        Method mapperMethod = null;
+        for (Method method : mapperClass.getMethods()) {
+            if (method.getName().equals(targetMethodName)) {
+                mapperMethod = method;
+                break;
+            }
+        }
+        // 方法上注解优先
+        SqlLog sqlLog = mapperMethod == null ? null : mapperMethod.getAnnotation(SqlLog.class);
+        if (sqlLog == null) {
+            sqlLog = mapperClass.getAnnotation(SqlLog.class);
+        }
+        return new StatementMeta(fullMapperMethod, mapperClass, mapperMethod, sqlLog, policy, sqlStatistics.histogram(fullMapperMethod),
+                sqlMetrics.statement(dataSource, fullMapperMethod), overrides.find(fullMapperMethod), dataSource);
+    }
+
+}
@@ -0,0 +1,62 @@
+package log.mybatis.sql;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 无锁令牌桶, 按GCRA实现, 只有一个CAS
+ * 每秒permitsPerSecond个, 允许一秒的突发
+ */
+public class TokenBucket {
+
+    private final int permitsPerSecond;
+
+    /**
+     * 每个令牌的间隔
+     */
+    private final long intervalNanos;
+
+    /**
+     * 允许提前消费的时间
+     */
+    private final long burstNanos;
+
+    /**
+     * 下一个令牌理论上可用的时间
+     */
+    private final AtomicLong nextFreeNanos;
+
+    public TokenBucket(int permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive, but was " + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.intervalNanos = Math.max(1L, TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = TimeUnit.SECONDS.toNanos(1) - intervalNanos;
+        this.nextFreeNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 尝试获取一个令牌, 不阻塞
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long next = nextFreeNanos.get();
+            if (next - now > burstNanos) {
+                return false;
+            }
+            long newNext = (next - now < 0 ? now : next) + intervalNanos;
+            if (nextFreeNanos.compareAndSet(next, newNext)) {
+                return true;
+            }
+        }
+    }
+
+    public int getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+}
@@ -0,0 +1,45 @@
+package log.mybatis.sql.alert;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 告警追加写到本地文件, 测试环境代替邮件, 每批之间空一行
+ */
+public class FileSqlAlertSender implements SqlAlertSender {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private final Path file;
+
+    public FileSqlAlertSender(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void send(List<SqlAlert> alerts) throws IOException {
+        List<String> lines = new ArrayList<>(alerts.size() + 1);
+        for (SqlAlert alert : alerts) {
+            lines.add(TIME.format(Instant.ofEpochMilli(alert.getFirstTime())) + " ~ " + TIME.format(Instant.ofEpochMilli(alert.getLastTime()))
+                    + " " + alert.getStatementId() + " " + alert.getExceptionType() + " x" + alert.getCount()
+                    + " " + alert.getMessage());
+        }
+        lines.add("");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+}
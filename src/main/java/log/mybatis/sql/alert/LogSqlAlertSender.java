@@ -0,0 +1,22 @@
+package log.mybatis.sql.alert;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 没有配置SqlAlertSender时的默认实现, 打error日志, 交给日志告警
+ */
+@Slf4j
+public class LogSqlAlertSender implements SqlAlertSender {
+
+    @Override
+    public void send(List<SqlAlert> alerts) {
+        for (SqlAlert alert : alerts) {
+            log.error("sql alert {} {} x{}: {}", alert.getStatementId(), alert.getExceptionType(), alert.getCount(), alert.getMessage());
+        }
+    }
+
+}
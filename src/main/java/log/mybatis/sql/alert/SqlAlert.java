@@ -0,0 +1,41 @@
+package log.mybatis.sql.alert;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 一个去重窗口内同一个statement + 异常类型的汇总
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class SqlAlert {
+
+    private final String statementId;
+
+    /**
+     * 翻译后的异常类名
+     */
+    private final String exceptionType;
+
+    /**
+     * 窗口内第一次异常的信息
+     */
+    private final String message;
+
+    /**
+     * 窗口内发生次数
+     */
+    private final long count;
+
+    /**
+     * 第一次和最后一次发生的时间戳, 毫秒
+     */
+    private final long firstTime;
+
+    private final long lastTime;
+
+}
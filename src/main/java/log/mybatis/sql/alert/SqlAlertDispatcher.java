@@ -0,0 +1,212 @@
+package log.mybatis.sql.alert;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 异步告警, 出错的线程只在当前窗口里给statement + 异常类型计数, 后台线程每个窗口发送一次
+ * 数据库挂掉时几千个线程同时报错, 每个窗口每种错误也只发一条
+ * 窗口内不同的错误种类有上限, 超过后丢弃并计数
+ * 换窗口时新出现的错误种类不会丢, 已有种类正在计数的线程可能记到已发送的旧窗口里, 次数是近似的
+ */
+@Slf4j
+public class SqlAlertDispatcher {
+
+    /**
+     * 异常信息最多保留的长度
+     */
+    private static final int MAX_MESSAGE_LENGTH = 500;
+
+    private final SqlAlertSender sender;
+
+    private final long windowNanos;
+
+    private final int capacity;
+
+    private volatile Window window = new Window();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param windowMillis 去重窗口, 毫秒
+     * @param capacity 每个窗口最多的错误种类数
+     */
+    public SqlAlertDispatcher(SqlAlertSender sender, long windowMillis, int capacity) {
+        if (windowMillis <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("alert window and capacity must be positive, but was " + windowMillis + ", " + capacity);
+        }
+        this.sender = sender;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.capacity = capacity;
+        this.worker = new Thread(this::sendLoop, "sql-alert");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 记一次异常, 不阻塞
+     * @param translateException 翻译后的异常
+     */
+    public void report(String statementId, Throwable translateException) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        String key = statementId + '#' + translateException.getClass().getName();
+        Pending created = null;
+        while (true) {
+            Window current = window;
+            Pending pending = current.pendings.get(key);
+            if (pending == null) {
+                if (current.size.get() >= capacity) {
+                    dropped.increment();
+                    return;
+                }
+                if (created == null) {
+                    // 创建时已经记了这一次
+                    created = new Pending(statementId, translateException);
+                }
+                pending = current.pendings.putIfAbsent(key, created);
+                if (pending == null) {
+                    current.size.incrementAndGet();
+                    // 放进去之后窗口换了, 后台线程没取走的话收回来放进新窗口, 取走了就会发出去
+                    if (window == current || !current.pendings.remove(key, created)) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            pending.count.increment();
+            pending.lastTime = System.currentTimeMillis();
+            return;
+        }
+    }
+
+    /**
+     * 停止后台线程, 当前窗口里的告警会发出去
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendLoop() {
+        long deadline = System.nanoTime() + windowNanos;
+        while (running) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                continue;
+            }
+            deadline += windowNanos;
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        Window closed = window;
+        if (closed.pendings.isEmpty()) {
+            return;
+        }
+        window = new Window();
+        List<SqlAlert> alerts = new ArrayList<>(closed.size.get());
+        for (Map.Entry<String, Pending> entry : closed.pendings.entrySet()) {
+            // 和换窗口时收回的report抢, 取走的才发送
+            Pending pending = entry.getValue();
+            if (closed.pendings.remove(entry.getKey(), pending)) {
+                alerts.add(new SqlAlert(pending.statementId, pending.exceptionType, pending.message,
+                        pending.count.sum(), pending.firstTime, pending.lastTime));
+            }
+        }
+        if (alerts.isEmpty()) {
+            return;
+        }
+        try {
+            sender.send(alerts);
+            sent.add(alerts.size());
+        } catch (Exception e) {
+            failed.add(alerts.size());
+            log.error("发送sql告警失败, {}条", alerts.size(), e);
+        }
+    }
+
+    /**
+     * 超过种类上限被丢掉的异常次数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 已发送的告警条数, 去重后的
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * 一个窗口的错误种类, 计数跟着窗口走, 换窗口时不会记错
+     */
+    private static final class Window {
+
+        private final Map<String, Pending> pendings = new ConcurrentHashMap<>();
+
+        /**
+         * ConcurrentHashMap.size()要遍历分段, 自己计数
+         */
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    private static final class Pending {
+
+        private final String statementId;
+
+        private final String exceptionType;
+
+        private final String message;
+
+        private final long firstTime = System.currentTimeMillis();
+
+        private volatile long lastTime = firstTime;
+
+        private final LongAdder count = new LongAdder();
+
+        Pending(String statementId, Throwable translateException) {
+            this.statementId = statementId;
+            this.exceptionType = translateException.getClass().getName();
+            // 告警按行输出, 去掉换行
+            String message = String.valueOf(translateException.getMessage()).replace('\n', ' ').replace('\r', ' ');
+            this.message = message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) + "..." : message;
+            this.count.increment();
+        }
+    }
+
+}
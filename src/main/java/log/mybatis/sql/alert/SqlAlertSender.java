@@ -0,0 +1,20 @@
+package log.mybatis.sql.alert;
+
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * sql异常告警的发送方式, 配置成spring bean替换默认的日志告警
+ * 在后台线程上调用, 每个去重窗口调用一次
+ */
+public interface SqlAlertSender {
+
+    /**
+     * 发送一批告警
+     * @param alerts 已经按statement + 异常类型去重, 不为空
+     * @throws Exception 发送失败只记日志, 不重试
+     */
+    void send(List<SqlAlert> alerts) throws Exception;
+
+}
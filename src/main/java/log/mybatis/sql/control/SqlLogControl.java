@@ -0,0 +1,228 @@
+package log.mybatis.sql.control;
+
+import log.mybatis.sql.DataSourceProfile;
+import log.mybatis.sql.SqlLogOverride;
+import log.mybatis.sql.SqlLogOverrides;
+import log.mybatis.sql.SqlLogPolicy;
+import log.mybatis.sql.SqlPrintInterceptor;
+import log.mybatis.sql.StatementMeta;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 运行时打印策略的控制入口, 注册为log.mybatis.sql:type=SqlLogControl的MXBean, http端点也调用这里
+ * 每次修改都生成新的不可变快照整体替换, 执行sql的线程不加锁
+ */
+@Slf4j
+public class SqlLogControl implements SqlLogControlMXBean, InitializingBean, DisposableBean {
+
+    public static final String OBJECT_NAME = "log.mybatis.sql:type=SqlLogControl";
+
+    private final SqlPrintInterceptor interceptor;
+
+    private ObjectName objectName;
+
+    public SqlLogControl(SqlPrintInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+                objectName = name;
+            }
+        } catch (JMException e) {
+            log.warn("注册sql打印控制MBean失败", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.warn("注销sql打印控制MBean失败", e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String getPolicy() {
+        return policy().toString();
+    }
+
+    @Override
+    public boolean isDefaultPrint() {
+        return policy().isDefaultPrint();
+    }
+
+    @Override
+    public void setDefaultPrint(boolean defaultPrint) {
+        interceptor.updatePolicy(policy -> policy.withDefaultPrint(defaultPrint));
+    }
+
+    @Override
+    public long getSlowThreshold() {
+        return policy().getSlowThreshold();
+    }
+
+    @Override
+    public void setSlowThreshold(long slowThreshold) {
+        interceptor.updatePolicy(policy -> policy.withSlowThreshold(slowThreshold));
+    }
+
+    @Override
+    public double getSampleRate() {
+        return policy().getSampleRate();
+    }
+
+    @Override
+    public void setSampleRate(double sampleRate) {
+        checkSampleRate(sampleRate);
+        interceptor.updatePolicy(policy -> policy.withSampleRate(sampleRate));
+    }
+
+    @Override
+    public Map<String, String> getOverrides() {
+        Map<String, String> overrides = new LinkedHashMap<>();
+        interceptor.getOverrides().asMap()
+                .forEach((target, override) -> overrides.put(target, override.toString()));
+        return overrides;
+    }
+
+    @Override
+    public void setPrint(String target, boolean print) {
+        override(target, new SqlLogOverride(print, null, null));
+    }
+
+    @Override
+    public void setSlowThreshold(String target, long slowThreshold) {
+        override(target, new SqlLogOverride(null, slowThreshold, null));
+    }
+
+    @Override
+    public void setSampleRate(String target, double sampleRate) {
+        checkSampleRate(sampleRate);
+        override(target, new SqlLogOverride(null, null, sampleRate));
+    }
+
+    /**
+     * 叠加覆盖配置, override中为null的项保持不变
+     */
+    public void override(String target, SqlLogOverride override) {
+        checkTarget(target);
+        interceptor.updateOverrides(overrides -> overrides.with(target, override));
+    }
+
+    @Override
+    public void clear(String target) {
+        checkTarget(target);
+        interceptor.updateOverrides(overrides -> overrides.without(target));
+    }
+
+    @Override
+    public void clearAll() {
+        interceptor.updateOverrides(overrides -> SqlLogOverrides.EMPTY);
+    }
+
+    @Override
+    public Map<String, String> getDataSources() {
+        Map<String, String> dataSources = new LinkedHashMap<>();
+        for (DataSourceProfile profile : interceptor.getDataSourceProfiles()) {
+            dataSources.put(profile.getName(), profile.getPolicy().toString());
+        }
+        return dataSources;
+    }
+
+    @Override
+    public void setDataSourcePrint(String dataSource, boolean print) {
+        overrideDataSource(dataSource, new SqlLogOverride(print, null, null));
+    }
+
+    @Override
+    public void setDataSourceSlowThreshold(String dataSource, long slowThreshold) {
+        overrideDataSource(dataSource, new SqlLogOverride(null, slowThreshold, null));
+    }
+
+    @Override
+    public void setDataSourceSampleRate(String dataSource, double sampleRate) {
+        checkSampleRate(sampleRate);
+        overrideDataSource(dataSource, new SqlLogOverride(null, null, sampleRate));
+    }
+
+    /**
+     * 叠加数据源级别的策略, override中为null的项保持不变
+     * @param dataSource SqlSessionFactory的bean名
+     */
+    public void overrideDataSource(String dataSource, SqlLogOverride override) {
+        checkDataSource(dataSource);
+        interceptor.updateDataSourcePolicy(dataSource, current -> current.merge(override));
+    }
+
+    @Override
+    public void clearDataSource(String dataSource) {
+        checkDataSource(dataSource);
+        interceptor.updateDataSourcePolicy(dataSource, current -> SqlLogOverride.NONE);
+    }
+
+    @Override
+    public String describe(String statementId) {
+        StringBuilder description = new StringBuilder();
+        for (DataSourceProfile profile : interceptor.getDataSourceProfiles()) {
+            StatementMeta meta = profile.getStatementMetaIndex().find(statementId);
+            if (meta == null) {
+                continue;
+            }
+            if (description.length() > 0) {
+                description.append('\n');
+            }
+            description.append(statementId).append('@').append(profile.getName()).append(": print=").append(meta.isPrint())
+                    .append(", slowThreshold=").append(meta.getSlowThreshold()).append(", sampleRate=").append(meta.getSampleRate())
+                    .append(", sqlLog=").append(meta.getSqlLog() != null).append(", override=").append(meta.getOverride());
+        }
+        if (description.length() == 0) {
+            return statementId + " not executed yet, override = " + interceptor.getOverrides().find(statementId);
+        }
+        return description.toString();
+    }
+
+    private SqlLogPolicy policy() {
+        return interceptor.getPolicy();
+    }
+
+    private static void checkDataSource(String dataSource) {
+        if (dataSource == null || dataSource.trim().isEmpty()) {
+            throw new IllegalArgumentException("dataSource must be a SqlSessionFactory bean name");
+        }
+    }
+
+    private static void checkTarget(String target) {
+        if (target == null || target.trim().isEmpty()) {
+            throw new IllegalArgumentException("target must be a statement id or mapper name");
+        }
+    }
+
+    private static void checkSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1, but was " + sampleRate);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package log.mybatis.sql.control;
+
+import log.mybatis.sql.SqlLogOverride;
+import org.springframework.web.HttpRequestHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 运行时调整打印策略的http端点, bean名字就是路径, 由BeanNameUrlHandlerMapping映射
+ * GET 查看当前策略和覆盖, 带statement参数时查看该statement生效的配置
+ * POST 修改, 不带target改全局, 带target改statement id或mapper全限定名, 带dataSource改该数据源
+ *      print=true|false, slowThreshold=毫秒, sampleRate=0~1, clear=true删除target或dataSource上的覆盖, 都没有时删除全部
+ * 没有鉴权, 只应该暴露在内网或者管理端口上
+ */
+public class SqlLogControlHandler implements HttpRequestHandler {
+
+    private final SqlLogControl sqlLogControl;
+
+    public SqlLogControlHandler(SqlLogControl sqlLogControl) {
+        this.sqlLogControl = sqlLogControl;
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("POST".equals(request.getMethod())) {
+            try {
+                update(request);
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+        } else if (!"GET".equals(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        response.setContentType("text/plain;charset=UTF-8");
+        PrintWriter writer = response.getWriter();
+        String statement = request.getParameter("statement");
+        if (statement != null) {
+            writer.println(sqlLogControl.describe(statement));
+            return;
+        }
+        writer.println("policy: " + sqlLogControl.getPolicy());
+        sqlLogControl.getDataSources().forEach((dataSource, policy) -> writer.println("dataSource " + dataSource + ": " + policy));
+        sqlLogControl.getOverrides().forEach((target, override) -> writer.println(target + ": " + override));
+    }
+
+    private void update(HttpServletRequest request) {
+        String target = request.getParameter("target");
+        String dataSource = request.getParameter("dataSource");
+        String print = request.getParameter("print");
+        String slowThreshold = request.getParameter("slowThreshold");
+        String sampleRate = request.getParameter("sampleRate");
+        if (target != null && dataSource != null) {
+            throw new IllegalArgumentException("target and dataSource can not be used together");
+        }
+        if (Boolean.parseBoolean(request.getParameter("clear"))) {
+            if (dataSource != null) {
+                sqlLogControl.clearDataSource(dataSource);
+            } else if (target == null) {
+                sqlLogControl.clearAll();
+            } else {
+                sqlLogControl.clear(target);
+            }
+            return;
+        }
+        if (target != null || dataSource != null) {
+            SqlLogOverride override = new SqlLogOverride(print == null ? null : parseBoolean(print),
+                    slowThreshold == null ? null : Long.valueOf(slowThreshold),
+                    sampleRate == null ? null : checkSampleRate(Double.valueOf(sampleRate)));
+            if (target != null) {
+                sqlLogControl.override(target, override);
+            } else {
+                sqlLogControl.overrideDataSource(dataSource, override);
+            }
+            return;
+        }
+        if (print != null) {
+            sqlLogControl.setDefaultPrint(parseBoolean(print));
+        }
+        if (slowThreshold != null) {
+            sqlLogControl.setSlowThreshold(Long.parseLong(slowThreshold));
+        }
+        if (sampleRate != null) {
+            sqlLogControl.setSampleRate(Double.parseDouble(sampleRate));
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+            throw new IllegalArgumentException("print must be true or false, but was " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static Double checkSampleRate(Double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1, but was " + sampleRate);
+        }
+        return sampleRate;
+    }
+
+}
@@ -0,0 +1,69 @@
+package log.mybatis.sql.control;
+
+import java.util.Map;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 运行时调整打印策略, 不用重启
+ * target是statement id或者mapper全限定名, dataSource是SqlSessionFactory的bean名
+ */
+public interface SqlLogControlMXBean {
+
+    String getPolicy();
+
+    boolean isDefaultPrint();
+
+    void setDefaultPrint(boolean defaultPrint);
+
+    long getSlowThreshold();
+
+    void setSlowThreshold(long slowThreshold);
+
+    double getSampleRate();
+
+    void setSampleRate(double sampleRate);
+
+    /**
+     * 当前的覆盖配置
+     */
+    Map<String, String> getOverrides();
+
+    void setPrint(String target, boolean print);
+
+    void setSlowThreshold(String target, long slowThreshold);
+
+    void setSampleRate(String target, double sampleRate);
+
+    /**
+     * 删除target上的覆盖
+     */
+    void clear(String target);
+
+    /**
+     * 删除所有覆盖
+     */
+    void clearAll();
+
+    /**
+     * 各数据源生效的策略, key: SqlSessionFactory的bean名
+     */
+    Map<String, String> getDataSources();
+
+    void setDataSourcePrint(String dataSource, boolean print);
+
+    void setDataSourceSlowThreshold(String dataSource, long slowThreshold);
+
+    void setDataSourceSampleRate(String dataSource, double sampleRate);
+
+    /**
+     * 删除数据源级别的策略, 回到全局策略
+     */
+    void clearDataSource(String dataSource);
+
+    /**
+     * statement在各数据源上当前生效的配置
+     */
+    String describe(String statementId);
+
+}
@@ -0,0 +1,50 @@
+package log.mybatis.sql.explain;
+
+import java.util.Locale;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 不同数据库的EXPLAIN语法, 配置成spring bean可以替换自动识别的结果
+ */
+public interface ExplainDialect {
+
+    /**
+     * EXPLAIN前缀, H2, MySQL, MariaDB, PostgreSQL通用, 只explain查询
+     */
+    ExplainDialect STANDARD = sql -> isQuery(sql) ? "EXPLAIN " + sql : null;
+
+    ExplainDialect SQLITE = sql -> isQuery(sql) ? "EXPLAIN QUERY PLAN " + sql : null;
+
+    /**
+     * 不支持的数据库
+     */
+    ExplainDialect NONE = sql -> null;
+
+    /**
+     * 生成explain语句, 参数?保持不变, 执行时按原来的顺序绑定
+     * @param sql 带?的sql
+     * @return explain语句, 不支持时返回null
+     */
+    String explainSql(String sql);
+
+    /**
+     * 按DatabaseMetaData.getDatabaseProductName()识别
+     */
+    static ExplainDialect detect(String databaseProductName) {
+        String name = databaseProductName == null ? "" : databaseProductName.toLowerCase(Locale.ROOT);
+        if (name.contains("h2") || name.contains("mysql") || name.contains("mariadb") || name.contains("postgresql")) {
+            return STANDARD;
+        }
+        if (name.contains("sqlite")) {
+            return SQLITE;
+        }
+        return NONE;
+    }
+
+    static boolean isQuery(String sql) {
+        String trimmed = sql.trim();
+        return trimmed.regionMatches(true, 0, "select", 0, 6) || trimmed.regionMatches(true, 0, "with", 0, 4);
+    }
+
+}
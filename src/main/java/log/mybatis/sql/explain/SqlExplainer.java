@@ -0,0 +1,220 @@
+package log.mybatis.sql.explain;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import log.mybatis.sql.SqlExplainEvent;
+import log.mybatis.sql.SqlPrinter;
+import log.mybatis.sql.StatementMeta;
+import log.mybatis.sql.parameter.FrozenBytes;
+import log.mybatis.sql.parameter.FrozenElements;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 慢sql的执行计划, 在单独的低优先级线程上用同一个DataSource的新连接执行EXPLAIN, 不占用业务连接
+ * 按sql指纹缓存, 有效期内同一种sql只explain一次, 失败也缓存, 避免反复重试
+ */
+@Slf4j
+public class SqlExplainer {
+
+    /**
+     * 已提交还没拿到结果
+     */
+    private static final String PENDING = "";
+
+    private static final int QUEUE_SIZE = 64;
+
+    private static final int MAX_PLANS = 1024;
+
+    private static final int QUERY_TIMEOUT_SECONDS = 10;
+
+    private final SqlPrinter sqlPrinter;
+
+    /**
+     * 配置的方言, 为null时按连接自动识别
+     */
+    private final ExplainDialect dialect;
+
+    /**
+     * key: sql指纹, value: 执行计划
+     */
+    private final Cache<String, String> plans;
+
+    private final Map<DataSource, ExplainDialect> dialects = new ConcurrentHashMap<>(4);
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder explained = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param ttlSeconds 执行计划缓存有效期, 秒
+     */
+    public SqlExplainer(SqlPrinter sqlPrinter, ExplainDialect dialect, long ttlSeconds) {
+        this.sqlPrinter = sqlPrinter;
+        this.dialect = dialect;
+        this.plans = CacheBuilder.newBuilder()
+                .maximumSize(MAX_PLANS)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, "sql-explain");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * 指纹是否需要explain, 缓存里有或者正在explain时返回false, 调用线程先用这个判断再采集参数
+     */
+    public boolean needExplain(String fingerprint) {
+        return plans.getIfPresent(fingerprint) == null;
+    }
+
+    /**
+     * 提交explain, 同一个指纹并发提交时只有一个生效, 队列满时丢弃
+     * @param sql 带?的sql
+     * @param parameterValues 按顺序对应?的参数值
+     * @param executionTime 触发的那次执行耗时, 毫秒
+     */
+    public void submit(StatementMeta statementMeta, DataSource dataSource, String sql, String fingerprint,
+                       Object[] parameterValues, long executionTime) {
+        if (plans.asMap().putIfAbsent(fingerprint, PENDING) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> explain(statementMeta, dataSource, sql, fingerprint, parameterValues, executionTime));
+        } catch (RejectedExecutionException e) {
+            plans.invalidate(fingerprint);
+            rejected.increment();
+        }
+    }
+
+    /**
+     * 缓存中的执行计划, 没有或者还没拿到返回null
+     */
+    public String getPlan(String fingerprint) {
+        String plan = plans.getIfPresent(fingerprint);
+        return plan == null || plan.isEmpty() ? null : plan;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public long getExplainedCount() {
+        return explained.sum();
+    }
+
+    /**
+     * 队列满丢掉的次数
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private void explain(StatementMeta statementMeta, DataSource dataSource, String sql, String fingerprint,
+                         Object[] parameterValues, long executionTime) {
+        long start = System.nanoTime();
+        String plan;
+        try (Connection connection = dataSource.getConnection()) {
+            ExplainDialect explainDialect = dialect != null ? dialect
+                    : dialects.computeIfAbsent(dataSource, ds -> detect(connection));
+            String explainSql = explainDialect.explainSql(sql);
+            if (explainSql == null) {
+                plans.put(fingerprint, "explain not supported");
+                return;
+            }
+            plan = query(connection, explainSql, parameterValues);
+        } catch (Throwable e) {
+            log.warn("explain {} 失败: {}", statementMeta.getId(), e.toString());
+            plans.put(fingerprint, "explain failed: " + e);
+            return;
+        }
+        plans.put(fingerprint, plan);
+        explained.increment();
+        try {
+            sqlPrinter.printExplain(new SqlExplainEvent(statementMeta, sql, fingerprint, executionTime, plan, System.nanoTime() - start));
+        } catch (Throwable e) {
+            log.error("打印执行计划异常", e);
+        }
+    }
+
+    private static ExplainDialect detect(Connection connection) {
+        try {
+            return ExplainDialect.detect(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            log.warn("识别数据库类型失败, 不做explain", e);
+            return ExplainDialect.NONE;
+        }
+    }
+
+    /**
+     * 执行explain, 一列时每行一个值, 多列时按"列名=值"拼接, 行之间换行
+     */
+    private static String query(Connection connection, String explainSql, Object[] parameterValues) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(explainSql)) {
+            statement.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+            for (int i = 0; i < parameterValues.length; i++) {
+                statement.setObject(i + 1, jdbcValue(parameterValues[i]));
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columns = metaData.getColumnCount();
+                while (resultSet.next()) {
+                    if (plan.length() > 0) {
+                        plan.append('\n');
+                    }
+                    for (int c = 1; c <= columns; c++) {
+                        if (columns > 1) {
+                            plan.append(c > 1 ? ", " : "").append(metaData.getColumnLabel(c)).append('=');
+                        }
+                        plan.append(resultSet.getString(c));
+                    }
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    /**
+     * 参数值已经是TypeHandler处理前的java对象, 常见的几种转成驱动认识的类型
+     */
+    private static Object jdbcValue(Object value) {
+        // 采集时复制的数组和二进制, 超长的只剩前面一部分
+        if (value instanceof FrozenElements) {
+            return ((FrozenElements) value).getElements();
+        }
+        if (value instanceof FrozenBytes) {
+            return ((FrozenBytes) value).getHead();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof java.util.Date && !(value instanceof java.sql.Date || value instanceof java.sql.Time
+                || value instanceof Timestamp)) {
+            return new Timestamp(((java.util.Date) value).getTime());
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,57 @@
+package log.mybatis.sql.journal;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * journal文件格式
+ * 文件头16字节: magic(4) version(2) 保留(2) 创建时间(8)
+ * 之后是连续的记录: 长度(4, 包含记录头) 类型(1) 内容, 类型最后写, 为0表示还没写完, 长度为0表示文件结束
+ * 字典记录: 下标(4) 字符串, 事件记录用下标引用statement id和sql, 字典只在本文件内有效
+ * 事件记录: 时间戳(8) statement下标(4) sql下标(4, 没有sql为-1) 耗时毫秒(8) 行数(8) 批量条数(4) 参数个数(4) 参数
+ * 参数: 类型标记(1) 值, 字符串是长度(4) + UTF-8
+ */
+final class JournalFormat {
+
+    static final int MAGIC = 0x53514C4A;
+
+    static final short VERSION = 1;
+
+    static final int FILE_HEADER_SIZE = 16;
+
+    static final int RECORD_HEADER_SIZE = 5;
+
+    static final String SUFFIX = ".sqlj";
+
+    static final byte TYPE_UNCOMMITTED = 0;
+
+    static final byte TYPE_STATEMENT = 1;
+
+    static final byte TYPE_SQL = 2;
+
+    static final byte TYPE_EVENT = 3;
+
+    static final byte TAG_NULL = 0;
+
+    static final byte TAG_LONG = 1;
+
+    static final byte TAG_DOUBLE = 2;
+
+    static final byte TAG_BOOLEAN = 3;
+
+    static final byte TAG_STRING = 4;
+
+    static final byte TAG_DECIMAL = 5;
+
+    static final byte TAG_TIMESTAMP = 6;
+
+    static final byte TAG_BYTES = 7;
+
+    /**
+     * 其他类型在写入时用参数渲染器渲染好的sql字面量
+     */
+    static final byte TAG_LITERAL = 8;
+
+    private JournalFormat() {
+    }
+
+}
@@ -0,0 +1,84 @@
+package log.mybatis.sql.journal;
+
+import log.mybatis.sql.AbstractSqlPrinter;
+import log.mybatis.sql.SqlBatchEvent;
+import log.mybatis.sql.SqlEvent;
+import log.mybatis.sql.SqlLogGate;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 把sql事件写进内存映射的二进制journal, 不经过logback, 不在写入时渲染sql
+ * 需要看的时候用SqlJournalReader还原成sql
+ * <pre>
+ * &#64;Bean
+ * public SqlPrinter sqlPrinter() throws IOException {
+ *     return new JournalSqlPrinter("/data/logs/sql");
+ * }
+ * </pre>
+ */
+public class JournalSqlPrinter extends AbstractSqlPrinter implements DisposableBean {
+
+    private final SqlJournal journal;
+
+    public JournalSqlPrinter(String directory) throws IOException {
+        this(new SqlJournal(Paths.get(directory), "sql", SqlJournal.DEFAULT_SEGMENT_SIZE, SqlJournal.DEFAULT_MAX_SEGMENTS));
+    }
+
+    public JournalSqlPrinter(SqlJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * 直接写原始sql和参数值, 异步模式下在后台线程执行
+     */
+    @Override
+    public void render(SqlEvent event) {
+        journal.append(event.getFullMapperMethod(), event.getSql(), event.getParameterValues(), event.getExecutionTime(),
+                event.getTotal(), 0, getParameterRendererRegistry());
+    }
+
+    /**
+     * 批量只写一条, 带第一行样例参数
+     */
+    @Override
+    public void printBatch(SqlBatchEvent event) {
+        SqlLogGate.Decision decision = getLogGate().decide(event.getStatementMeta(), event.getExecutionTime());
+        if (decision == SqlLogGate.Decision.SKIP) {
+            return;
+        }
+        List<Object[]> samples = event.getSampleParameterValues();
+        boolean withSql = decision == SqlLogGate.Decision.SQL && !samples.isEmpty();
+        journal.append(event.getFullMapperMethod(), withSql ? event.getSql() : null, withSql ? samples.get(0) : null,
+                event.getExecutionTime(), event.getUpdateCount(), event.getBatchSize(), getParameterRendererRegistry());
+    }
+
+    /**
+     * render已经覆盖, 不会调用
+     */
+    @Override
+    public void notLogSql(String fullMapperMethod, int total, long executionTime) {
+    }
+
+    /**
+     * render已经覆盖, 不会调用
+     */
+    @Override
+    public void logSql(String fullMapperMethod, int total, long executionTime, CharSequence sql) {
+    }
+
+    public SqlJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void destroy() {
+        journal.close();
+    }
+
+}
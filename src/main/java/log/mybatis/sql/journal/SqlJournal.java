@@ -0,0 +1,438 @@
+package log.mybatis.sql.journal;
+
+import log.mybatis.sql.parameter.ParameterRendererRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static log.mybatis.sql.journal.JournalFormat.*;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 内存映射的二进制sql日志, 按固定大小滚动
+ * 写入时先预留一段空间并写好长度, 再由各线程并发写自己那段内容; 写满后换下一个文件
+ * 预留和写长度在同一个很短的同步块里, 所以读到长度为0一定是已写内容的结尾, 不会有预留了还没写长度的空洞
+ */
+@Slf4j
+public class SqlJournal implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+    private static final int FULL = -1;
+
+    private static final int TOO_LARGE = -2;
+
+    private final Path directory;
+
+    private final String prefix;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile Segment current;
+
+    /**
+     * @param directory 目录
+     * @param prefix 文件名前缀, 文件名是prefix-序号.sqlj
+     * @param segmentSize 单个文件大小
+     * @param maxSegments 最多保留的文件数, 小于等于0不删除
+     */
+    public SqlJournal(Path directory, String prefix, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= FILE_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        List<Path> existing = segments(directory, prefix);
+        long seq = existing.isEmpty() ? 0 : sequence(existing.get(existing.size() - 1)) + 1;
+        this.current = Segment.open(segmentPath(seq), seq, segmentSize);
+        deleteOldSegments();
+    }
+
+    /**
+     * 追加一条事件
+     * @param statementId statement id
+     * @param sql 原始sql, 不打印sql时为null
+     * @param parameterValues ?对应的参数值, 可以为null
+     * @param executionTime 耗时, 毫秒
+     * @param rows 返回或影响的行数
+     * @param batchSize 批量条数, 不是批量为0
+     * @param registry 无法直接编码的参数用它渲染成字面量
+     */
+    public void append(String statementId, String sql, Object[] parameterValues, long executionTime, long rows,
+                       int batchSize, ParameterRendererRegistry registry) {
+        Encoder encoder = encoders.get();
+        try {
+            Segment segment = current;
+            while (segment != null) {
+                int idInx = intern(segment, segment.statements, segment.nextStatement, TYPE_STATEMENT, statementId, encoder);
+                int sqlInx = idInx < 0 || sql == null ? -1
+                        : intern(segment, segment.sqls, segment.nextSql, TYPE_SQL, sql, encoder);
+                int result;
+                if (idInx < 0) {
+                    result = idInx;
+                } else if (sql != null && sqlInx < 0) {
+                    result = sqlInx;
+                } else {
+                    encoder.reset();
+                    encoder.putLong(System.currentTimeMillis());
+                    encoder.putInt(idInx);
+                    encoder.putInt(sqlInx);
+                    encoder.putLong(executionTime);
+                    encoder.putLong(rows);
+                    encoder.putInt(batchSize);
+                    encodeParameters(encoder, parameterValues, registry);
+                    result = write(segment, TYPE_EVENT, encoder);
+                }
+                if (result == TOO_LARGE) {
+                    dropped.increment();
+                    return;
+                }
+                if (result != FULL) {
+                    written.increment();
+                    return;
+                }
+                segment = roll(segment);
+            }
+            dropped.increment();
+        } catch (IOException e) {
+            dropped.increment();
+            log.error("写sql journal异常", e);
+        }
+    }
+
+    private static void encodeParameters(Encoder encoder, Object[] parameterValues, ParameterRendererRegistry registry) {
+        if (parameterValues == null) {
+            encoder.putInt(0);
+            return;
+        }
+        encoder.putInt(parameterValues.length);
+        for (Object value : parameterValues) {
+            if (value == null) {
+                encoder.put(TAG_NULL);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                encoder.put(TAG_LONG);
+                encoder.putLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                encoder.put(TAG_DOUBLE);
+                encoder.putDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                encoder.put(TAG_BOOLEAN);
+                encoder.put((byte) ((Boolean) value ? 1 : 0));
+            } else if (value instanceof String) {
+                encoder.put(TAG_STRING);
+                encoder.putString((String) value);
+            } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+                encoder.put(TAG_DECIMAL);
+                encoder.putString(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+            } else if (value.getClass() == Date.class || value.getClass() == java.sql.Timestamp.class) {
+                encoder.put(TAG_TIMESTAMP);
+                encoder.putLong(((Date) value).getTime());
+            } else if (value instanceof byte[]) {
+                encoder.put(TAG_BYTES);
+                encoder.putBytes((byte[]) value);
+            } else {
+                encoder.put(TAG_LITERAL);
+                encoder.putString(registry.render(value));
+            }
+        }
+    }
+
+    /**
+     * 字典里没有时先写字典记录再放进字典, 别的线程拿到下标时字典记录一定已经写在前面
+     */
+    private int intern(Segment segment, Map<String, Integer> dict, AtomicInteger next, byte type, String value, Encoder encoder) {
+        Integer inx = dict.get(value);
+        if (inx != null) {
+            return inx;
+        }
+        int newInx = next.getAndIncrement();
+        encoder.reset();
+        encoder.putInt(newInx);
+        encoder.putString(value);
+        int result = write(segment, type, encoder);
+        if (result < 0) {
+            return result;
+        }
+        inx = dict.putIfAbsent(value, newInx);
+        return inx == null ? newInx : inx;
+    }
+
+    /**
+     * 预留时已经写好长度, 再写内容, 最后写类型表示写完
+     * @return 写入位置, 写满返回FULL, 比一个文件还大返回TOO_LARGE
+     */
+    private int write(Segment segment, byte type, Encoder encoder) {
+        ByteBuffer payload = encoder.flip();
+        int len = RECORD_HEADER_SIZE + payload.remaining();
+        if (len > segmentSize - FILE_HEADER_SIZE) {
+            return TOO_LARGE;
+        }
+        int pos = segment.reserve(len);
+        if (pos < 0) {
+            return FULL;
+        }
+        ByteBuffer view = encoder.view(segment);
+        view.position(pos + RECORD_HEADER_SIZE);
+        view.put(payload);
+        segment.buffer.put(pos + 4, type);
+        return pos;
+    }
+
+    private synchronized Segment roll(Segment full) throws IOException {
+        if (current != full) {
+            return current;
+        }
+        current = Segment.open(segmentPath(full.seq + 1), full.seq + 1, segmentSize);
+        deleteOldSegments();
+        return current;
+    }
+
+    private void deleteOldSegments() throws IOException {
+        if (maxSegments <= 0) {
+            return;
+        }
+        List<Path> segments = segments(directory, prefix);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(String.format("%s-%08d%s", prefix, seq, SUFFIX));
+    }
+
+    /**
+     * 目录下的journal文件, 按序号排序
+     */
+    static List<Path> segments(Path directory, String prefix) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return (prefix == null || name.startsWith(prefix + "-")) && sequence(path) >= 0;
+            }).forEach(segments::add);
+        }
+        // 序号补齐了8位, 按文件名排序就是按序号
+        segments.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        return segments;
+    }
+
+    /**
+     * 文件名里的序号, 不是journal文件返回-1
+     */
+    static long sequence(Path path) {
+        String name = path.getFileName().toString();
+        int dash = name.lastIndexOf('-');
+        if (dash < 0 || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(dash + 1, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 把已写入的内容刷到磁盘, 之后的写入会被丢弃
+     */
+    @Override
+    public synchronized void close() {
+        Segment segment = current;
+        current = null;
+        if (segment != null) {
+            segment.buffer.force();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 一个映射文件, 映射建好后就关掉channel, 映射一直有效到被回收
+     */
+    private static final class Segment {
+
+        private final long seq;
+
+        private final MappedByteBuffer buffer;
+
+        private final int capacity;
+
+        /**
+         * 下一条记录的位置, 只在reserve里读写
+         */
+        private int position = FILE_HEADER_SIZE;
+
+        private final Map<String, Integer> statements = new ConcurrentHashMap<>();
+
+        private final AtomicInteger nextStatement = new AtomicInteger();
+
+        private final Map<String, Integer> sqls = new ConcurrentHashMap<>();
+
+        private final AtomicInteger nextSql = new AtomicInteger();
+
+        private Segment(long seq, MappedByteBuffer buffer) {
+            this.seq = seq;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        static Segment open(Path path, long seq, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(0, MAGIC);
+                buffer.putShort(4, VERSION);
+                buffer.putLong(8, System.currentTimeMillis());
+                return new Segment(seq, buffer);
+            }
+        }
+
+        /**
+         * 预留len字节并写入长度, 后面的记录预留时这条的长度已经写好
+         * 只同步移动位置和写4个字节, 内容的复制不在锁内
+         * @return 起始位置, 放不下返回-1
+         */
+        synchronized int reserve(int len) {
+            int pos = position;
+            if (pos + len > capacity) {
+                return -1;
+            }
+            buffer.putInt(pos, len);
+            position = pos + len;
+            return pos;
+        }
+    }
+
+    /**
+     * 每个线程一个, 先把记录编码到堆内缓冲再整段复制到映射区
+     */
+    private static final class Encoder {
+
+        private static final int INITIAL_CAPACITY = 4096;
+
+        /**
+         * 超过这个大小的缓冲用完就丢掉, 和SqlBuffers一样
+         */
+        private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+        private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+        private Segment viewOwner;
+
+        private ByteBuffer view;
+
+        void reset() {
+            if (scratch.capacity() > MAX_RETAINED_CAPACITY) {
+                scratch = ByteBuffer.allocate(INITIAL_CAPACITY);
+            } else {
+                scratch.clear();
+            }
+        }
+
+        ByteBuffer flip() {
+            scratch.flip();
+            return scratch;
+        }
+
+        /**
+         * 映射区的独立视图, 绝对位置写入不影响别的线程
+         */
+        ByteBuffer view(Segment segment) {
+            if (viewOwner != segment) {
+                viewOwner = segment;
+                view = segment.buffer.duplicate();
+            }
+            view.clear();
+            return view;
+        }
+
+        void put(byte b) {
+            ensure(1);
+            scratch.put(b);
+        }
+
+        void putInt(int v) {
+            ensure(4);
+            scratch.putInt(v);
+        }
+
+        void putLong(long v) {
+            ensure(8);
+            scratch.putLong(v);
+        }
+
+        void putDouble(double v) {
+            ensure(8);
+            scratch.putDouble(v);
+        }
+
+        void putString(String value) {
+            putBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void putBytes(byte[] bytes) {
+            ensure(4 + bytes.length);
+            scratch.putInt(bytes.length);
+            scratch.put(bytes);
+        }
+
+        private void ensure(int len) {
+            if (scratch.remaining() >= len) {
+                return;
+            }
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + len));
+            scratch.flip();
+            bigger.put(scratch);
+            scratch = bigger;
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package log.mybatis.sql.journal;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * journal里读出的一条事件
+ */
+@Getter
+@RequiredArgsConstructor
+public class SqlJournalEntry {
+
+    private final long timestamp;
+
+    private final String statementId;
+
+    /**
+     * 没有打印sql时为null
+     */
+    private final String sql;
+
+    private final long executionTime;
+
+    private final long rows;
+
+    /**
+     * 批量条数, 不是批量为0
+     */
+    private final int batchSize;
+
+    private final Object[] parameterValues;
+
+}
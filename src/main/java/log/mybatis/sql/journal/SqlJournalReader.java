@@ -0,0 +1,324 @@
+package log.mybatis.sql.journal;
+
+import log.mybatis.sql.PlaceholderReplacer;
+import log.mybatis.sql.SqlTemplate;
+import log.mybatis.sql.parameter.ParameterRendererRegistry;
+import log.mybatis.sql.parameter.ParameterRenderers;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static log.mybatis.sql.journal.JournalFormat.*;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 读取journal并还原成sql
+ * <pre>
+ * java -cp mybatis-log.jar log.mybatis.sql.journal.SqlJournalReader [选项] 目录或文件...
+ *   --statement 关键字   只看statement id包含关键字的
+ *   --from 时间          yyyy-MM-dd HH:mm:ss 或毫秒时间戳
+ *   --to 时间
+ *   --tail               持续读取最新的文件
+ * </pre>
+ */
+public class SqlJournalReader {
+
+    private static final long TAIL_POLL_MILLIS = 200;
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private final ParameterRendererRegistry registry = new ParameterRendererRegistry(
+            Collections.singletonList(ParameterRenderers.of(Literal.class, (value, out, maxLength) -> out.append(value.text))), -1);
+
+    private final Map<String, SqlTemplate> templates = new HashMap<>();
+
+    /**
+     * 顺序读一个文件
+     */
+    public void read(Path file, Predicate<SqlJournalEntry> filter, Consumer<SqlJournalEntry> consumer) throws IOException {
+        new Cursor(map(file)).readAvailable(filter, consumer, false);
+    }
+
+    /**
+     * 持续读取目录下最新的文件, 滚动后跟到下一个文件, 不会返回
+     * @param fromStart 是否先输出已有内容
+     */
+    public void tail(Path directory, Predicate<SqlJournalEntry> filter, Consumer<SqlJournalEntry> consumer, boolean fromStart)
+            throws IOException, InterruptedException {
+        Path file = null;
+        Cursor cursor = null;
+        // 上一轮是否已经看到当前文件滚动了
+        boolean rolledBefore = false;
+        while (true) {
+            List<Path> segments = SqlJournal.segments(directory, null);
+            if (cursor == null) {
+                if (!segments.isEmpty()) {
+                    file = segments.get(segments.size() - 1);
+                    cursor = new Cursor(map(file));
+                    if (!fromStart) {
+                        cursor.readAvailable(entry -> false, consumer, true);
+                    }
+                }
+            } else {
+                int inx = segments.indexOf(file);
+                boolean rolled = inx >= 0 && inx < segments.size() - 1;
+                // 滚动后不会再有新的预留, 上一轮之后还没写完的记录是写入进程异常退出留下的, 跳过
+                cursor.readAvailable(filter, consumer, !(rolled && rolledBefore));
+                rolledBefore = rolled;
+                // 有更新的文件且当前文件没有新内容了, 换到下一个
+                if (rolled && !cursor.hasMore()) {
+                    file = segments.get(inx + 1);
+                    cursor = new Cursor(map(file));
+                    rolledBefore = false;
+                    continue;
+                }
+            }
+            Thread.sleep(TAIL_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * 还原成一行日志, 格式和DefaultSqlPrinter一致, 前面加时间
+     */
+    public String format(SqlJournalEntry entry) {
+        StringBuilder out = new StringBuilder(128);
+        TIMESTAMP.formatTo(Instant.ofEpochMilli(entry.getTimestamp()), out);
+        out.append(' ');
+        String id = entry.getStatementId();
+        out.append(id.substring(id.lastIndexOf('.') + 1));
+        if (entry.getBatchSize() > 0) {
+            out.append(",batch:").append(entry.getBatchSize()).append(",rows:").append(entry.getRows());
+        } else {
+            out.append(",total:").append(entry.getRows());
+        }
+        out.append(',').append(entry.getExecutionTime()).append("ms");
+        if (entry.getSql() != null) {
+            out.append(' ');
+            templates.computeIfAbsent(entry.getSql(), PlaceholderReplacer::compile)
+                    .render(entry.getParameterValues(), registry, out);
+        }
+        return out.toString();
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < FILE_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a sql journal");
+            }
+            if (buffer.getShort(4) != VERSION) {
+                throw new IOException(file + " has unsupported version " + buffer.getShort(4));
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * 一个文件的读取位置和字典
+     */
+    private static final class Cursor {
+
+        private final MappedByteBuffer buffer;
+
+        private final Map<Integer, String> statements = new HashMap<>();
+
+        private final Map<Integer, String> sqls = new HashMap<>();
+
+        private int position = FILE_HEADER_SIZE;
+
+        Cursor(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean hasMore() {
+            return position + RECORD_HEADER_SIZE <= buffer.capacity() && buffer.getInt(position) != 0;
+        }
+
+        /**
+         * 读到文件结束或者遇到还没写完的记录
+         * 长度在预留时就写好了, 长度为0一定是结尾, 没写完的记录也能按长度跳过
+         * @param waitUncommitted 遇到没写完的记录是停下等待还是跳过
+         */
+        void readAvailable(Predicate<SqlJournalEntry> filter, Consumer<SqlJournalEntry> consumer, boolean waitUncommitted) {
+            while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                int len = buffer.getInt(position);
+                if (len == 0) {
+                    return;
+                }
+                if (len < RECORD_HEADER_SIZE || position + len > buffer.capacity()) {
+                    throw new IllegalStateException("corrupted record at " + position);
+                }
+                byte type = buffer.get(position + 4);
+                if (type == TYPE_UNCOMMITTED && waitUncommitted) {
+                    return;
+                }
+                ByteBuffer record = slice(position + RECORD_HEADER_SIZE, len - RECORD_HEADER_SIZE);
+                position += len;
+                switch (type) {
+                    case TYPE_STATEMENT:
+                        statements.put(record.getInt(), getString(record));
+                        break;
+                    case TYPE_SQL:
+                        sqls.put(record.getInt(), getString(record));
+                        break;
+                    case TYPE_EVENT:
+                        SqlJournalEntry entry = readEvent(record);
+                        if (filter.test(entry)) {
+                            consumer.accept(entry);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private SqlJournalEntry readEvent(ByteBuffer record) {
+            long timestamp = record.getLong();
+            String statementId = statements.getOrDefault(record.getInt(), "?");
+            int sqlInx = record.getInt();
+            String sql = sqlInx < 0 ? null : sqls.get(sqlInx);
+            long executionTime = record.getLong();
+            long rows = record.getLong();
+            int batchSize = record.getInt();
+            Object[] parameterValues = new Object[record.getInt()];
+            for (int i = 0; i < parameterValues.length; i++) {
+                parameterValues[i] = readParameter(record);
+            }
+            return new SqlJournalEntry(timestamp, statementId, sql, executionTime, rows, batchSize, parameterValues);
+        }
+
+        private static Object readParameter(ByteBuffer record) {
+            byte tag = record.get();
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_LONG:
+                    return record.getLong();
+                case TAG_DOUBLE:
+                    return record.getDouble();
+                case TAG_BOOLEAN:
+                    return record.get() != 0;
+                case TAG_STRING:
+                    return getString(record);
+                case TAG_DECIMAL:
+                    return new BigDecimal(getString(record));
+                case TAG_TIMESTAMP:
+                    return new Timestamp(record.getLong());
+                case TAG_BYTES:
+                    byte[] bytes = new byte[record.getInt()];
+                    record.get(bytes);
+                    return bytes;
+                case TAG_LITERAL:
+                    return new Literal(getString(record));
+                default:
+                    throw new IllegalStateException("unknown parameter tag " + tag);
+            }
+        }
+
+        private ByteBuffer slice(int from, int length) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(from);
+            view.limit(from + length);
+            return view.slice();
+        }
+
+        private static String getString(ByteBuffer record) {
+            byte[] bytes = new byte[record.getInt()];
+            record.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 写入时已经渲染好的字面量, 原样输出
+     */
+    private static final class Literal {
+
+        private final String text;
+
+        Literal(String text) {
+            this.text = text;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String statement = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        boolean tail = false;
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--statement":
+                    statement = args[++i];
+                    break;
+                case "--from":
+                    from = parseTime(args[++i]);
+                    break;
+                case "--to":
+                    to = parseTime(args[++i]);
+                    break;
+                case "--tail":
+                    tail = true;
+                    break;
+                default:
+                    paths.add(Paths.get(args[i]));
+                    break;
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("usage: SqlJournalReader [--statement keyword] [--from time] [--to time] [--tail] dir|file...");
+            System.exit(1);
+        }
+        String keyword = statement;
+        long fromTime = from;
+        long toTime = to;
+        Predicate<SqlJournalEntry> filter = entry -> entry.getTimestamp() >= fromTime && entry.getTimestamp() <= toTime
+                && (keyword == null || entry.getStatementId().contains(keyword));
+        SqlJournalReader reader = new SqlJournalReader();
+        PrintStream out = System.out;
+        Consumer<SqlJournalEntry> printer = entry -> out.println(reader.format(entry));
+        if (tail) {
+            reader.tail(paths.get(0), filter, printer, fromTime != Long.MIN_VALUE);
+            return;
+        }
+        for (Path path : paths) {
+            List<Path> files = Files.isDirectory(path) ? SqlJournal.segments(path, null) : Collections.singletonList(path);
+            for (Path file : files) {
+                reader.read(file, filter, printer);
+            }
+        }
+    }
+
+    private static long parseTime(String time) {
+        if (time.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(time);
+        }
+        return LocalDateTime.parse(time, ParameterRenderers.DATE_TIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+}
@@ -0,0 +1,33 @@
+package log.mybatis.sql.json;
+
+import log.mybatis.sql.SqlEvent;
+import log.mybatis.sql.SqlPhases;
+import log.mybatis.sql.StatementMeta;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 带调用线程上下文的快照, 异步模式下在后台线程打印时线程名和trace id仍然是执行sql的线程的
+ */
+class JsonSqlEvent extends SqlEvent {
+
+    private final String thread;
+
+    private final String traceId;
+
+    JsonSqlEvent(StatementMeta statementMeta, int total, long executionTime, boolean print, String sql,
+                 Object[] parameterValues, SqlPhases phases, String thread, String traceId) {
+        super(statementMeta, total, executionTime, print, sql, parameterValues, phases);
+        this.thread = thread;
+        this.traceId = traceId;
+    }
+
+    String getThread() {
+        return thread;
+    }
+
+    String getTraceId() {
+        return traceId;
+    }
+
+}
@@ -0,0 +1,430 @@
+package log.mybatis.sql.json;
+
+import log.mybatis.sql.AbstractSqlPrinter;
+import log.mybatis.sql.SqlBatchEvent;
+import log.mybatis.sql.SqlBuffers;
+import log.mybatis.sql.SqlEvent;
+import log.mybatis.sql.SqlExplainEvent;
+import log.mybatis.sql.SqlLogGate;
+import log.mybatis.sql.SqlPhases;
+import log.mybatis.sql.SqlTemplate;
+import log.mybatis.sql.SqlTemplateCache;
+import log.mybatis.sql.StatementMeta;
+import log.mybatis.sql.parameter.ParameterRenderer;
+import log.mybatis.sql.parameter.ParameterRendererRegistry;
+import log.mybatis.sql.parameter.ParameterRenderers;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 每个事件输出一行json, 给日志采集直接解析, 不经过logback
+ * 在每个线程复用的byte缓冲里直接转义和编码, 不生成中间字符串和map, 写进独立的文件或channel
+ * 例: {"ts":1578280000000,"type":"sql","dataSource":"main","mapper":"demo.UserMapper","method":"get","durationUs":1830,
+ * "rows":1,"executeUs":1200,"mappingUs":630,"columns":2,"thread":"http-nio-8080-exec-1","traceId":"5f3a...",
+ * "fingerprint":"select id, name from t_user where id = ?","sql":"select id, name from t_user where id = 1","params":[1]}
+ * 超过SqlTemplateCache.MAX_CACHED_SQL_LENGTH的sql没有fingerprint字段
+ * 参数按类型输出, 整数和浮点是数字, 布尔是true/false, 其他是字符串; 有自定义渲染器的类型按渲染结果输出, 脱敏照样生效
+ * <pre>
+ * &#64;Bean
+ * public SqlPrinter sqlPrinter() throws IOException {
+ *     return new JsonSqlPrinter("/data/logs/sql.json");
+ * }
+ * </pre>
+ */
+@Slf4j
+public class JsonSqlPrinter extends AbstractSqlPrinter implements DisposableBean {
+
+    public static final String DEFAULT_TRACE_ID_KEY = "traceId";
+
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private static final byte[] TS = JsonWriter.key("ts");
+
+    private static final byte[] TYPE = JsonWriter.key("type");
+
+    private static final byte[] DATA_SOURCE = JsonWriter.key("dataSource");
+
+    private static final byte[] MAPPER = JsonWriter.key("mapper");
+
+    private static final byte[] METHOD = JsonWriter.key("method");
+
+    private static final byte[] DURATION_US = JsonWriter.key("durationUs");
+
+    private static final byte[] ROWS = JsonWriter.key("rows");
+
+    private static final byte[] EXECUTE_US = JsonWriter.key("executeUs");
+
+    private static final byte[] MAPPING_US = JsonWriter.key("mappingUs");
+
+    private static final byte[] FIRST_ROW_US = JsonWriter.key("firstRowUs");
+
+    private static final byte[] STREAM_US = JsonWriter.key("streamUs");
+
+    private static final byte[] COLUMNS = JsonWriter.key("columns");
+
+    private static final byte[] SLOW = JsonWriter.key("slow");
+
+    private static final byte[] BATCH_SIZE = JsonWriter.key("batchSize");
+
+    private static final byte[] US_PER_ROW = JsonWriter.key("usPerRow");
+
+    private static final byte[] EXPLAIN_US = JsonWriter.key("explainUs");
+
+    private static final byte[] PLAN = JsonWriter.key("plan");
+
+    private static final byte[] THREAD = JsonWriter.key("thread");
+
+    private static final byte[] TRACE_ID = JsonWriter.key("traceId");
+
+    private static final byte[] FINGERPRINT = JsonWriter.key("fingerprint");
+
+    private static final byte[] SQL = JsonWriter.key("sql");
+
+    private static final byte[] PARAMS = JsonWriter.key("params");
+
+    private static final byte[] PARAMS_TRUNCATED = JsonWriter.key("paramsTruncated");
+
+    private final WritableByteChannel channel;
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * trace id在MDC里的key, 为空不输出
+     */
+    private String traceIdKey = DEFAULT_TRACE_ID_KEY;
+
+    /**
+     * params最多输出的个数, 超过的只记个数, sql字段里仍然按maxSqlLength渲染
+     */
+    private int maxParameters = ParameterRenderers.DEFAULT_ELEMENTS_MAX_LENGTH;
+
+    /**
+     * 追加写到文件, 目录不存在时创建, 按行切割交给logrotate的copytruncate
+     */
+    public JsonSqlPrinter(String file) throws IOException {
+        this(open(Paths.get(file)));
+    }
+
+    /**
+     * 写到指定channel, 每行一次写完, 关闭时由打印器关掉channel
+     */
+    public JsonSqlPrinter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 在调用线程上记下线程名和trace id
+     */
+    @Override
+    protected SqlEvent newEvent(StatementMeta statementMeta, int total, long executionTime, boolean print, String sql,
+                                Object[] parameterValues, SqlPhases phases) {
+        return new JsonSqlEvent(statementMeta, total, executionTime, print, sql, parameterValues, phases,
+                Thread.currentThread().getName(), traceId());
+    }
+
+    /**
+     * 异步模式下在后台线程执行
+     */
+    @Override
+    public void render(SqlEvent event) {
+        StatementMeta statementMeta = event.getStatementMeta();
+        JsonWriter writer = JsonWriter.acquire();
+        try {
+            begin(writer, "sql", statementMeta);
+            SqlPhases phases = event.getPhases();
+            writer.key(DURATION_US).value(phases == null
+                    ? TimeUnit.MILLISECONDS.toMicros(event.getExecutionTime()) : TimeUnit.NANOSECONDS.toMicros(phases.getTotalNanos()));
+            writer.key(ROWS).value(event.getTotal());
+            if (phases != null && phases.hasMapping()) {
+                writer.key(EXECUTE_US).value(TimeUnit.NANOSECONDS.toMicros(phases.getExecuteNanos()));
+                if (phases.isStreamed()) {
+                    writer.key(FIRST_ROW_US).value(TimeUnit.NANOSECONDS.toMicros(phases.getFirstRowNanos()));
+                    writer.key(STREAM_US).value(TimeUnit.NANOSECONDS.toMicros(phases.getMappingNanos()));
+                } else {
+                    writer.key(MAPPING_US).value(TimeUnit.NANOSECONDS.toMicros(phases.getMappingNanos()));
+                }
+                if (phases.getColumnCount() != SqlPhases.UNKNOWN) {
+                    writer.key(COLUMNS).value(phases.getColumnCount());
+                }
+            }
+            slow(writer, statementMeta, event.getExecutionTime());
+            if (event instanceof JsonSqlEvent) {
+                JsonSqlEvent jsonEvent = (JsonSqlEvent) event;
+                context(writer, jsonEvent.getThread(), jsonEvent.getTraceId());
+            }
+            if (event.isPrint() && event.getSql() != null) {
+                sql(writer, statementMeta, event.getSql(), event.getParameterValues());
+            }
+            end(writer);
+        } finally {
+            JsonWriter.release(writer);
+        }
+    }
+
+    /**
+     * 批量只写一行, 带第一条样例
+     */
+    @Override
+    public void printBatch(SqlBatchEvent event) {
+        StatementMeta statementMeta = event.getStatementMeta();
+        SqlLogGate.Decision decision = getLogGate().decide(statementMeta, event.getExecutionTime());
+        if (decision == SqlLogGate.Decision.SKIP) {
+            return;
+        }
+        JsonWriter writer = JsonWriter.acquire();
+        try {
+            begin(writer, "batch", statementMeta);
+            writer.key(DURATION_US).value(TimeUnit.NANOSECONDS.toMicros(event.getTotalNanos()));
+            writer.key(ROWS).value(event.getUpdateCount());
+            writer.key(BATCH_SIZE).value(event.getBatchSize());
+            writer.key(US_PER_ROW).value(event.getMicrosPerRow());
+            slow(writer, statementMeta, event.getExecutionTime());
+            context(writer, Thread.currentThread().getName(), traceId());
+            List<Object[]> samples = event.getSampleParameterValues();
+            if (decision == SqlLogGate.Decision.SQL && !samples.isEmpty()) {
+                sql(writer, statementMeta, event.getSql(), samples.get(0));
+            }
+            end(writer);
+        } finally {
+            JsonWriter.release(writer);
+        }
+    }
+
+    /**
+     * 在explain线程上执行, 没有调用线程的上下文
+     */
+    @Override
+    public void printExplain(SqlExplainEvent event) {
+        JsonWriter writer = JsonWriter.acquire();
+        try {
+            begin(writer, "explain", event.getStatementMeta());
+            writer.key(DURATION_US).value(TimeUnit.MILLISECONDS.toMicros(event.getExecutionTime()));
+            writer.key(EXPLAIN_US).value(TimeUnit.NANOSECONDS.toMicros(event.getExplainNanos()));
+            writer.key(FINGERPRINT).value(event.getFingerprint());
+            writer.key(SQL).value(event.getSql());
+            writer.key(PLAN).value(event.getPlan());
+            end(writer);
+        } finally {
+            JsonWriter.release(writer);
+        }
+    }
+
+    /**
+     * render已经覆盖, 不会调用
+     */
+    @Override
+    public void notLogSql(String fullMapperMethod, int total, long executionTime) {
+    }
+
+    /**
+     * render已经覆盖, 不会调用
+     */
+    @Override
+    public void logSql(String fullMapperMethod, int total, long executionTime, CharSequence sql) {
+    }
+
+    /**
+     * mapper和方法名直接从statement id里截取, 不用substring
+     */
+    private static void begin(JsonWriter writer, String type, StatementMeta statementMeta) {
+        writer.beginObject();
+        writer.key(TS).value(System.currentTimeMillis());
+        writer.key(TYPE).value(type);
+        writer.key(DATA_SOURCE).value(statementMeta.getDataSource());
+        String id = statementMeta.getId();
+        int dot = id.lastIndexOf('.');
+        writer.key(MAPPER).value(id, 0, Math.max(dot, 0));
+        writer.key(METHOD).value(id, dot + 1, id.length());
+    }
+
+    private void end(JsonWriter writer) {
+        writer.endObject().newLine();
+        write(writer.buffer());
+    }
+
+    private static void slow(JsonWriter writer, StatementMeta statementMeta, long executionTime) {
+        long slowThreshold = statementMeta.getSlowThreshold();
+        if (slowThreshold >= 0 && executionTime >= slowThreshold) {
+            writer.key(SLOW).value(true);
+        }
+    }
+
+    private static void context(JsonWriter writer, String thread, String traceId) {
+        writer.key(THREAD).value(thread);
+        if (traceId != null) {
+            writer.key(TRACE_ID).value(traceId);
+        }
+    }
+
+    /**
+     * 指纹按模板缓存, sql渲染进线程缓冲后直接编码, 参数按类型输出
+     * 超长的sql模板不进缓存, 每次都要重新算指纹, 这时不输出指纹
+     */
+    private void sql(JsonWriter writer, StatementMeta statementMeta, String sql, Object[] parameterValues) {
+        SqlTemplate template = getTemplateCache().get(statementMeta.getId(), sql);
+        ParameterRendererRegistry registry = getParameterRendererRegistry();
+        Object[] values = parameterValues == null ? NO_PARAMETERS : parameterValues;
+        if (sql.length() <= SqlTemplateCache.MAX_CACHED_SQL_LENGTH) {
+            writer.key(FINGERPRINT).value(template.getFingerprint());
+        }
+        StringBuilder out = SqlBuffers.acquire();
+        try {
+            template.render(values, registry, out, statementMeta.getMaxSqlLength(), statementMeta.isCollapseRepeated());
+            writer.key(SQL).value(out);
+        } finally {
+            SqlBuffers.release(out);
+        }
+        int end = maxParameters > 0 ? Math.min(values.length, maxParameters) : values.length;
+        writer.key(PARAMS).beginArray();
+        for (int i = 0; i < end; i++) {
+            parameter(writer, values[i], registry);
+        }
+        writer.endArray();
+        if (end < values.length) {
+            writer.key(PARAMS_TRUNCATED).value(values.length - end);
+        }
+    }
+
+    private static void parameter(JsonWriter writer, Object value, ParameterRendererRegistry registry) {
+        if (value == null) {
+            writer.nullValue();
+            return;
+        }
+        ParameterRenderer<?> renderer = registry.getRenderer(value.getClass());
+        if (registry.getCustomRenderers().contains(renderer)) {
+            literal(writer, value, registry);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writer.value(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            writer.value(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            writer.value((boolean) (Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            writer.number(((BigDecimal) value).toPlainString());
+        } else if (value instanceof BigInteger) {
+            writer.number(value.toString());
+        } else if (value instanceof CharSequence) {
+            string(writer, (CharSequence) value, renderer.getMaxLength() > 0 ? renderer.getMaxLength() : registry.getDefaultMaxLength());
+        } else {
+            literal(writer, value, registry);
+        }
+    }
+
+    /**
+     * 原样输出字符串, 超过上限截断, 标记和sql里一样
+     */
+    private static void string(JsonWriter writer, CharSequence value, int maxLength) {
+        int len = value.length();
+        if (maxLength <= 0 || len <= maxLength) {
+            writer.value(value);
+            return;
+        }
+        writer.beginString();
+        writer.appendEscaped(value, 0, maxLength);
+        StringBuilder out = SqlBuffers.acquire();
+        try {
+            ParameterRenderers.appendTruncated(out, len - maxLength, "chars");
+            writer.appendEscaped(out, 0, out.length());
+        } finally {
+            SqlBuffers.release(out);
+        }
+        writer.endString();
+    }
+
+    /**
+     * 用参数渲染器渲染, 去掉sql字面量外面的单引号, 比如日期输出成"2020-01-06 12:00:00"
+     */
+    private static void literal(JsonWriter writer, Object value, ParameterRendererRegistry registry) {
+        StringBuilder out = SqlBuffers.acquire();
+        try {
+            registry.render(value, out);
+            int len = out.length();
+            if (len >= 2 && out.charAt(0) == '\'' && out.charAt(len - 1) == '\'') {
+                writer.value(out, 1, len - 1);
+            } else {
+                writer.value(out);
+            }
+        } finally {
+            SqlBuffers.release(out);
+        }
+    }
+
+    private String traceId() {
+        String key = traceIdKey;
+        return key == null || key.isEmpty() ? null : MDC.get(key);
+    }
+
+    /**
+     * 一行一次写完, 多个线程写同一个channel时不会交错
+     */
+    private void write(ByteBuffer buffer) {
+        try {
+            synchronized (channel) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            written.increment();
+        } catch (IOException e) {
+            failed.increment();
+            log.error("写sql json异常", e);
+        }
+    }
+
+    public String getTraceIdKey() {
+        return traceIdKey;
+    }
+
+    public void setTraceIdKey(String traceIdKey) {
+        this.traceIdKey = traceIdKey;
+    }
+
+    public int getMaxParameters() {
+        return maxParameters;
+    }
+
+    public void setMaxParameters(int maxParameters) {
+        this.maxParameters = maxParameters;
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        channel.close();
+    }
+
+}
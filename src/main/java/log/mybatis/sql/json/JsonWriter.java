@@ -0,0 +1,352 @@
+package log.mybatis.sql.json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 每个线程复用的json编码缓冲, 字符直接转义并编码成UTF-8写进byte数组, 不生成中间字符串
+ * 只支持一层对象里放基本类型的值和基本类型的数组, 够打印sql事件用
+ */
+final class JsonWriter {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * 超过这个大小的缓冲用完就丢掉, 和SqlBuffers一样
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    /**
+     * 一个字符最多输出的字节数, 转义成\\uXXXX是6个, 代理对编码成4个
+     */
+    private static final int MAX_BYTES_PER_CHAR = 6;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<JsonWriter> WRITERS = ThreadLocal.withInitial(JsonWriter::new);
+
+    private byte[] buf = new byte[INITIAL_CAPACITY];
+
+    private int len;
+
+    private ByteBuffer wrapped = ByteBuffer.wrap(buf);
+
+    /**
+     * double转文本用, JDK的转换器本身按线程复用
+     */
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    /**
+     * 当前对象或数组里还没有写过值
+     */
+    private boolean first = true;
+
+    /**
+     * 刚写完key, 下一个值不需要逗号
+     */
+    private boolean afterKey;
+
+    private JsonWriter() {
+    }
+
+    /**
+     * 获取当前线程的writer, 已清空, 用完必须release
+     */
+    static JsonWriter acquire() {
+        JsonWriter writer = WRITERS.get();
+        writer.len = 0;
+        writer.first = true;
+        writer.afterKey = false;
+        return writer;
+    }
+
+    static void release(JsonWriter writer) {
+        if (writer.buf.length > MAX_RETAINED_CAPACITY) {
+            WRITERS.remove();
+        }
+    }
+
+    /**
+     * 编码好的内容, 和writer共用数组, release之前有效
+     */
+    ByteBuffer buffer() {
+        if (wrapped.array() != buf) {
+            wrapped = ByteBuffer.wrap(buf);
+        }
+        wrapped.clear();
+        wrapped.limit(len);
+        return wrapped;
+    }
+
+    int length() {
+        return len;
+    }
+
+    JsonWriter beginObject() {
+        value();
+        put('{');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        put('}');
+        first = false;
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        value();
+        put('[');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        put(']');
+        first = false;
+        return this;
+    }
+
+    JsonWriter newLine() {
+        put('\n');
+        first = true;
+        return this;
+    }
+
+    /**
+     * 写key
+     * @param key 编码好的"name":, 见{@link #key(String)}
+     */
+    JsonWriter key(byte[] key) {
+        separator();
+        putBytes(key);
+        afterKey = true;
+        return this;
+    }
+
+    JsonWriter nullValue() {
+        value();
+        putBytes(NULL);
+        return this;
+    }
+
+    JsonWriter value(boolean value) {
+        value();
+        putBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        value();
+        if (value == Long.MIN_VALUE) {
+            putBytes(MIN_LONG);
+            return this;
+        }
+        ensure(20);
+        if (value < 0) {
+            buf[len++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int pos = len + digits;
+        len = pos;
+        do {
+            buf[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return this;
+    }
+
+    /**
+     * NaN和Infinity不是合法的json数字, 按字符串输出
+     */
+    JsonWriter value(double value) {
+        scratch.setLength(0);
+        scratch.append(value);
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return value(scratch);
+        }
+        return number(scratch);
+    }
+
+    /**
+     * 写已经是合法json数字的文本, 比如BigDecimal.toPlainString
+     */
+    JsonWriter number(CharSequence number) {
+        value();
+        int n = number.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            buf[len++] = (byte) number.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * 写字符串, null写成null
+     */
+    JsonWriter value(CharSequence value) {
+        if (value == null) {
+            return nullValue();
+        }
+        return value(value, 0, value.length());
+    }
+
+    /**
+     * 写字符串的[start, end)部分
+     */
+    JsonWriter value(CharSequence value, int start, int end) {
+        value();
+        put('"');
+        appendEscaped(value, start, end);
+        put('"');
+        return this;
+    }
+
+    /**
+     * 开始一个分几次写的字符串, 内容用appendEscaped追加
+     */
+    JsonWriter beginString() {
+        value();
+        put('"');
+        return this;
+    }
+
+    JsonWriter endString() {
+        put('"');
+        return this;
+    }
+
+    /**
+     * 转义并编码成UTF-8, 不加引号, 可以分几次拼成一个字符串
+     * 引号, 反斜杠和控制字符按json转义, U+2028/U+2029和落单的代理字符转成\\uXXXX
+     */
+    void appendEscaped(CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            ensure(MAX_BYTES_PER_CHAR);
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buf[len++] = (byte) c;
+                    continue;
+                }
+                buf[len++] = '\\';
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        buf[len++] = (byte) c;
+                        break;
+                    case '\n':
+                        buf[len++] = 'n';
+                        break;
+                    case '\r':
+                        buf[len++] = 'r';
+                        break;
+                    case '\t':
+                        buf[len++] = 't';
+                        break;
+                    case '\b':
+                        buf[len++] = 'b';
+                        break;
+                    case '\f':
+                        buf[len++] = 'f';
+                        break;
+                    default:
+                        len--;
+                        putUnicodeEscape(c);
+                        break;
+                }
+            } else if (c < 0x800) {
+                buf[len++] = (byte) (0xc0 | (c >> 6));
+                buf[len++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[len++] = (byte) (0xf0 | (codePoint >> 18));
+                buf[len++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buf[len++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buf[len++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c) || c == '\u2028' || c == '\u2029') {
+                putUnicodeEscape(c);
+            } else {
+                buf[len++] = (byte) (0xe0 | (c >> 12));
+                buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[len++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    /**
+     * 编码key, 启动时调用一次, 结果是"name":
+     */
+    static byte[] key(String name) {
+        JsonWriter writer = new JsonWriter();
+        writer.value(name);
+        writer.put(':');
+        byte[] key = new byte[writer.len];
+        System.arraycopy(writer.buf, 0, key, 0, writer.len);
+        return key;
+    }
+
+    private void putUnicodeEscape(char c) {
+        buf[len++] = '\\';
+        buf[len++] = 'u';
+        buf[len++] = HEX[(c >> 12) & 0xf];
+        buf[len++] = HEX[(c >> 8) & 0xf];
+        buf[len++] = HEX[(c >> 4) & 0xf];
+        buf[len++] = HEX[c & 0xf];
+    }
+
+    /**
+     * 数组元素之间加逗号, key后面的值不加
+     */
+    private void value() {
+        if (afterKey) {
+            afterKey = false;
+            return;
+        }
+        separator();
+    }
+
+    private void separator() {
+        if (first) {
+            first = false;
+        } else {
+            put(',');
+        }
+    }
+
+    private void put(char c) {
+        ensure(1);
+        buf[len++] = (byte) c;
+    }
+
+    private void putBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, len, bytes.length);
+        len += bytes.length;
+    }
+
+    private void ensure(int n) {
+        if (len + n <= buf.length) {
+            return;
+        }
+        byte[] bigger = new byte[Math.max(buf.length * 2, len + n)];
+        System.arraycopy(buf, 0, bigger, 0, len);
+        buf = bigger;
+    }
+
+}
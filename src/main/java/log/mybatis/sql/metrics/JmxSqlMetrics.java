@@ -0,0 +1,177 @@
+package log.mybatis.sql.metrics;
+
+import log.mybatis.sql.AbstractSqlPrinter;
+import log.mybatis.sql.AsyncSqlDispatcher;
+import log.mybatis.sql.DataSourceProfile;
+import log.mybatis.sql.FingerprintSnapshot;
+import log.mybatis.sql.LatencySnapshot;
+import log.mybatis.sql.SqlFingerprintStats;
+import log.mybatis.sql.SqlPrintInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 注册为log.mybatis.sql:type=SqlMetrics的MXBean, 耗时分布直接读各数据源的SqlStatistics
+ * 行数和失败次数的key是 数据源/statement id
+ */
+@Slf4j
+public class JmxSqlMetrics implements SqlMetrics, SqlMetricsMXBean, DisposableBean {
+
+    public static final String OBJECT_NAME = "log.mybatis.sql:type=SqlMetrics";
+
+    private static final int TOP_N = 20;
+
+    private final Map<String, JmxStatementMetrics> statements = new ConcurrentHashMap<>(256);
+
+    private final LongAdder printCount = new LongAdder();
+
+    private final LongAdder printNanos = new LongAdder();
+
+    private volatile SqlPrintInterceptor interceptor;
+
+    private ObjectName objectName;
+
+    @Override
+    public StatementMetrics statement(String dataSource, String statementId) {
+        return statements.computeIfAbsent(dataSource + '/' + statementId, id -> new JmxStatementMetrics());
+    }
+
+    @Override
+    public void recordPrint(long nanos) {
+        printCount.increment();
+        printNanos.add(nanos);
+    }
+
+    @Override
+    public synchronized void bindTo(SqlPrintInterceptor interceptor) {
+        this.interceptor = interceptor;
+        if (objectName != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+                objectName = name;
+            }
+        } catch (JMException e) {
+            log.warn("注册sql指标MBean失败", e);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.warn("注销sql指标MBean失败", e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public Map<String, List<LatencySnapshot>> getSlowestStatements() {
+        SqlPrintInterceptor i = interceptor;
+        Map<String, List<LatencySnapshot>> slowest = new TreeMap<>();
+        if (i != null) {
+            for (DataSourceProfile profile : i.getDataSourceProfiles()) {
+                slowest.put(profile.getName(), profile.getSqlStatistics().slowest(TOP_N));
+            }
+        }
+        return slowest;
+    }
+
+    @Override
+    public List<FingerprintSnapshot> getTopFingerprints() {
+        SqlPrintInterceptor i = interceptor;
+        SqlFingerprintStats fingerprintStats = i == null ? null : i.getFingerprintStats();
+        return fingerprintStats == null ? Collections.emptyList() : fingerprintStats.top(TOP_N);
+    }
+
+    @Override
+    public Map<String, Long> getRows() {
+        Map<String, Long> rows = new TreeMap<>();
+        statements.forEach((id, metrics) -> rows.put(id, metrics.rows.sum()));
+        return rows;
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> errors = new TreeMap<>();
+        statements.forEach((id, metrics) -> metrics.errors.forEach((type, count) -> errors.put(id + " " + type.getSimpleName(), count.sum())));
+        return errors;
+    }
+
+    @Override
+    public long getPrintCount() {
+        return printCount.sum();
+    }
+
+    @Override
+    public double getPrintMeanMicros() {
+        long count = printCount.sum();
+        return count == 0 ? 0 : printNanos.sum() / (double) count / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public int getAsyncQueueSize() {
+        AsyncSqlDispatcher dispatcher = dispatcher();
+        return dispatcher == null ? 0 : dispatcher.getQueueSize();
+    }
+
+    @Override
+    public long getAsyncDroppedCount() {
+        AsyncSqlDispatcher dispatcher = dispatcher();
+        return dispatcher == null ? 0 : dispatcher.getDroppedCount() + dispatcher.getSampledOutCount();
+    }
+
+    @Override
+    public long getSuppressedCount() {
+        SqlPrintInterceptor i = interceptor;
+        return i != null && i.getSqlPrinter() instanceof AbstractSqlPrinter
+                ? ((AbstractSqlPrinter) i.getSqlPrinter()).getLogGate().getSuppressedCount() : 0;
+    }
+
+    private AsyncSqlDispatcher dispatcher() {
+        SqlPrintInterceptor i = interceptor;
+        return i == null ? null : i.getAsyncDispatcher();
+    }
+
+    private static final class JmxStatementMetrics implements StatementMetrics {
+
+        private final LongAdder rows = new LongAdder();
+
+        private final Map<Class<?>, LongAdder> errors = new ConcurrentHashMap<>(4);
+
+        @Override
+        public void record(long nanos, long rows) {
+            if (rows > 0) {
+                this.rows.add(rows);
+            }
+        }
+
+        @Override
+        public void recordError(long nanos, Class<? extends Throwable> exceptionType) {
+            errors.computeIfAbsent(exceptionType, type -> new LongAdder()).increment();
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package log.mybatis.sql.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import log.mybatis.sql.AbstractSqlPrinter;
+import log.mybatis.sql.AsyncSqlDispatcher;
+import log.mybatis.sql.SqlPrintInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 输出到micrometer
+ * mybatis.sql               每个statement的耗时, tag: datasource, statement, mapper, method
+ * mybatis.sql.rows          每个statement返回或影响的行数
+ * mybatis.sql.errors        失败次数, 额外按翻译后的异常类型打tag
+ * mybatis.sql.print         采集和打印sql的耗时
+ * mybatis.sql.async.queue   异步队列长度
+ * mybatis.sql.async.dropped 异步队列丢弃数
+ * mybatis.sql.suppressed    被采样或限流丢掉的行数
+ */
+public class MicrometerSqlMetrics implements SqlMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer printTimer;
+
+    private final Map<String, StatementMetrics> statements = new ConcurrentHashMap<>(256);
+
+    public MicrometerSqlMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.printTimer = Timer.builder("mybatis.sql.print")
+                .description("time spent capturing and printing sql")
+                .register(registry);
+    }
+
+    @Override
+    public StatementMetrics statement(String dataSource, String statementId) {
+        return statements.computeIfAbsent(dataSource + '/' + statementId, key -> new MicrometerStatementMetrics(dataSource, statementId));
+    }
+
+    @Override
+    public void recordPrint(long nanos) {
+        printTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void bindTo(SqlPrintInterceptor interceptor) {
+        Gauge.builder("mybatis.sql.async.queue", interceptor, i -> {
+            AsyncSqlDispatcher dispatcher = i.getAsyncDispatcher();
+            return dispatcher == null ? 0 : dispatcher.getQueueSize();
+        }).description("async sql print queue size").register(registry);
+        FunctionCounter.builder("mybatis.sql.async.dropped", interceptor, i -> {
+            AsyncSqlDispatcher dispatcher = i.getAsyncDispatcher();
+            return dispatcher == null ? 0 : dispatcher.getDroppedCount() + dispatcher.getSampledOutCount();
+        }).description("sql events dropped by the async queue").register(registry);
+        FunctionCounter.builder("mybatis.sql.suppressed", interceptor, i -> {
+            return i.getSqlPrinter() instanceof AbstractSqlPrinter
+                    ? ((AbstractSqlPrinter) i.getSqlPrinter()).getLogGate().getSuppressedCount() : 0;
+        }).description("sql lines suppressed by sampling and rate limits").register(registry);
+    }
+
+    private final class MicrometerStatementMetrics implements StatementMetrics {
+
+        private final Tags tags;
+
+        private final Timer timer;
+
+        private final DistributionSummary rows;
+
+        /**
+         * 异常类型不多, 第一次出现时注册
+         */
+        private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>(4);
+
+        MicrometerStatementMetrics(String dataSource, String statementId) {
+            int dot = statementId.lastIndexOf('.');
+            this.tags = Tags.of("datasource", dataSource, "statement", statementId,
+                    "mapper", dot < 0 ? "" : statementId.substring(statementId.lastIndexOf('.', dot - 1) + 1, dot),
+                    "method", statementId.substring(dot + 1));
+            this.timer = Timer.builder("mybatis.sql").tags(tags).register(registry);
+            this.rows = DistributionSummary.builder("mybatis.sql.rows").tags(tags).register(registry);
+        }
+
+        @Override
+        public void record(long nanos, long rows) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            if (rows >= 0) {
+                this.rows.record(rows);
+            }
+        }
+
+        @Override
+        public void recordError(long nanos, Class<? extends Throwable> exceptionType) {
+            errors.computeIfAbsent(exceptionType, type -> Counter.builder("mybatis.sql.errors")
+                    .tags(tags).tag("exception", type.getSimpleName())
+                    .register(registry)).increment();
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package log.mybatis.sql.metrics;
+
+import log.mybatis.sql.SqlPrintInterceptor;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 拦截器指标的输出, classpath上有micrometer时用MicrometerSqlMetrics, 否则用JmxSqlMetrics
+ */
+public interface SqlMetrics {
+
+    SqlMetrics NOOP = new SqlMetrics() {
+        @Override
+        public StatementMetrics statement(String dataSource, String statementId) {
+            return StatementMetrics.NOOP;
+        }
+
+        @Override
+        public void recordPrint(long nanos) {
+        }
+
+        @Override
+        public void bindTo(SqlPrintInterceptor interceptor) {
+        }
+    };
+
+    /**
+     * statement的指标, 同一个数据源的同一个statement id多次调用返回同一个对象
+     * @param dataSource 数据源, SqlSessionFactory的bean名, 同一个mapper可能注册在多个数据源上
+     */
+    StatementMetrics statement(String dataSource, String statementId);
+
+    /**
+     * 拦截器自身开销, 采集和打印sql的耗时
+     */
+    void recordPrint(long nanos);
+
+    /**
+     * 注册队列长度, 丢弃数等从拦截器读取的指标
+     */
+    void bindTo(SqlPrintInterceptor interceptor);
+
+}
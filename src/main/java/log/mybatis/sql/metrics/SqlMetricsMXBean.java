@@ -0,0 +1,49 @@
+package log.mybatis.sql.metrics;
+
+import log.mybatis.sql.FingerprintSnapshot;
+import log.mybatis.sql.LatencySnapshot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 没有micrometer时通过JMX查看的指标
+ */
+public interface SqlMetricsMXBean {
+
+    /**
+     * 各数据源按p99最慢的statement, key: 数据源
+     */
+    Map<String, List<LatencySnapshot>> getSlowestStatements();
+
+    /**
+     * 按总耗时排序的sql指纹
+     */
+    List<FingerprintSnapshot> getTopFingerprints();
+
+    /**
+     * 各数据源/statement返回或影响的总行数
+     */
+    Map<String, Long> getRows();
+
+    /**
+     * 数据源/statement id + 异常类型的失败次数
+     */
+    Map<String, Long> getErrors();
+
+    long getPrintCount();
+
+    /**
+     * 采集和打印sql的平均耗时, 微秒
+     */
+    double getPrintMeanMicros();
+
+    int getAsyncQueueSize();
+
+    long getAsyncDroppedCount();
+
+    long getSuppressedCount();
+
+}
@@ -0,0 +1,34 @@
+package log.mybatis.sql.metrics;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 单个statement的指标, 每个statement创建一次, StatementMeta直接持有, 记录时不用再查找
+ */
+public interface StatementMetrics {
+
+    StatementMetrics NOOP = new StatementMetrics() {
+        @Override
+        public void record(long nanos, long rows) {
+        }
+
+        @Override
+        public void recordError(long nanos, Class<? extends Throwable> exceptionType) {
+        }
+    };
+
+    /**
+     * 记录一次成功的执行
+     * @param nanos 耗时
+     * @param rows 返回或影响的行数
+     */
+    void record(long nanos, long rows);
+
+    /**
+     * 记录一次失败
+     * @param nanos 耗时
+     * @param exceptionType 翻译后的异常类型
+     */
+    void recordError(long nanos, Class<? extends Throwable> exceptionType);
+
+}
@@ -0,0 +1,33 @@
+package log.mybatis.sql.parameter;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 采集时复制的超长二进制参数, 只保留渲染得到的前几个字节和原来的长度
+ */
+public final class FrozenBytes {
+
+    private final byte[] head;
+
+    private final int length;
+
+    FrozenBytes(byte[] head, int length) {
+        this.head = head;
+        this.length = length;
+    }
+
+    /**
+     * 保留的字节, 不要修改
+     */
+    public byte[] getHead() {
+        return head;
+    }
+
+    /**
+     * 原来的字节数
+     */
+    public int getLength() {
+        return length;
+    }
+
+}
@@ -0,0 +1,37 @@
+package log.mybatis.sql.parameter;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 采集时复制的数组或集合, 只保留渲染得到的前几个元素和原来的长度
+ */
+public final class FrozenElements {
+
+    private final Object[] elements;
+
+    private final int size;
+
+    FrozenElements(Object[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    /**
+     * 保留的元素, 不要修改
+     */
+    public Object[] getElements() {
+        return elements;
+    }
+
+    /**
+     * 原来的元素个数
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isTruncated() {
+        return elements.length < size;
+    }
+
+}
@@ -0,0 +1,31 @@
+package log.mybatis.sql.parameter;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 参数渲染, 把?对应的参数值直接写进sql缓冲区
+ * 注册成spring bean即可生效, 同一类型自定义的优先于内置的
+ */
+public interface ParameterRenderer<T> {
+
+    /**
+     * 支持的类型, 子类也会使用这个渲染器, 除非有更具体的
+     */
+    Class<T> getType();
+
+    /**
+     * 渲染参数
+     * @param value 参数值, 不为null
+     * @param out 输出缓冲区
+     * @param maxLength 最多输出的字符数, 小于等于0不限制, 超过时需要截断而不是整个转成字符串
+     */
+    void render(T value, StringBuilder out, int maxLength);
+
+    /**
+     * 这个类型的长度上限, 小于等于0使用全局配置
+     */
+    default int getMaxLength() {
+        return -1;
+    }
+
+}
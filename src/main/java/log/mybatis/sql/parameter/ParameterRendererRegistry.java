@@ -0,0 +1,259 @@
+package log.mybatis.sql.parameter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 参数渲染器注册表, 按参数的实际类型找最具体的渲染器, 结果按类缓存
+ * 自定义的渲染器优先于内置的, 都找不到时按String.valueOf输出
+ */
+@Slf4j
+public class ParameterRendererRegistry {
+
+    private final List<ParameterRenderer<?>> customRenderers;
+
+    private final List<ParameterRenderer<?>> builtInRenderers;
+
+    /**
+     * 全局长度上限, 渲染器自己没配置时使用
+     */
+    private final int defaultMaxLength;
+
+    private final ClassValue<ParameterRenderer<?>> resolved = new ClassValue<ParameterRenderer<?>>() {
+        @Override
+        protected ParameterRenderer<?> computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    public ParameterRendererRegistry() {
+        this(Collections.emptyList(), -1);
+    }
+
+    /**
+     * @param customRenderers 自定义渲染器
+     * @param defaultMaxLength 全局长度上限, 小于等于0不限制
+     */
+    public ParameterRendererRegistry(Collection<? extends ParameterRenderer<?>> customRenderers, int defaultMaxLength) {
+        this.customRenderers = Collections.unmodifiableList(new ArrayList<>(customRenderers));
+        this.builtInRenderers = ParameterRenderers.builtIn();
+        this.defaultMaxLength = defaultMaxLength;
+    }
+
+    /**
+     * 渲染参数, 追加到out
+     */
+    public void render(Object value, StringBuilder out) {
+        render(value, out, -1);
+    }
+
+    /**
+     * 渲染参数, 追加到out
+     * @param budget 整条sql剩余的长度, 和渲染器的上限取小的, 小于等于0不限制
+     */
+    @SuppressWarnings("unchecked")
+    public void render(Object value, StringBuilder out, int budget) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type.isArray() && type != byte[].class) {
+            renderArray(value, out);
+            return;
+        }
+        if (value instanceof Collection) {
+            renderCollection((Collection<?>) value, out);
+            return;
+        }
+        if (value instanceof FrozenElements) {
+            FrozenElements elements = (FrozenElements) value;
+            renderElements(elements.getElements(), elements.getSize(), out);
+            return;
+        }
+        if (value instanceof FrozenBytes) {
+            FrozenBytes bytes = (FrozenBytes) value;
+            render(bytes.getHead(), out, budget);
+            out.append("/*");
+            ParameterRenderers.appendTruncated(out, bytes.getLength() - bytes.getHead().length, "bytes");
+            out.append("*/");
+            return;
+        }
+        ParameterRenderer<Object> renderer = (ParameterRenderer<Object>) resolved.get(type);
+        int maxLength = maxLength(renderer);
+        if (budget > 0 && (maxLength <= 0 || budget < maxLength)) {
+            maxLength = budget;
+        }
+        renderer.render(value, out, maxLength);
+    }
+
+    /**
+     * 渲染参数成字符串
+     */
+    public String render(Object value) {
+        StringBuilder out = new StringBuilder();
+        render(value, out);
+        return out.toString();
+    }
+
+    /**
+     * 采集时复制可变的参数值, 异步打印, 日志框架异步输出或者explain时业务代码可能已经改了原来的对象
+     * Date复制一份, 数组和集合只复制渲染得到的前几个元素, byte[]只复制渲染得到的长度, 不可变的值原样返回
+     */
+    public Object freeze(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Enum) {
+            return value;
+        }
+        if (value instanceof Date) {
+            // clone保留Timestamp的纳秒和java.sql的子类型
+            return ((Date) value).clone();
+        }
+        if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            int maxLength = maxLength(resolved.get(byte[].class));
+            if (maxLength <= 0 || bytes.length <= maxLength) {
+                return bytes.clone();
+            }
+            return new FrozenBytes(Arrays.copyOf(bytes, maxLength), bytes.length);
+        }
+        if (value.getClass().isArray()) {
+            int len = Array.getLength(value);
+            Object[] elements = new Object[Math.min(len, ParameterRenderers.DEFAULT_ELEMENTS_MAX_LENGTH)];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = freeze(Array.get(value, i));
+            }
+            return new FrozenElements(elements, len);
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            int len = collection.size();
+            Object[] elements = new Object[Math.min(len, ParameterRenderers.DEFAULT_ELEMENTS_MAX_LENGTH)];
+            int inx = 0;
+            for (Object element : collection) {
+                if (inx == elements.length) {
+                    break;
+                }
+                elements[inx++] = freeze(element);
+            }
+            return new FrozenElements(inx == elements.length ? elements : Arrays.copyOf(elements, inx), len);
+        }
+        if (value instanceof CharSequence) {
+            // StringBuilder之类
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * 某个类型使用的渲染器
+     */
+    public ParameterRenderer<?> getRenderer(Class<?> type) {
+        return resolved.get(type);
+    }
+
+    public List<ParameterRenderer<?>> getCustomRenderers() {
+        return customRenderers;
+    }
+
+    public int getDefaultMaxLength() {
+        return defaultMaxLength;
+    }
+
+    private int maxLength(ParameterRenderer<?> renderer) {
+        int maxLength = renderer.getMaxLength();
+        return maxLength > 0 ? maxLength : defaultMaxLength;
+    }
+
+    private void renderElements(Object[] elements, int len, StringBuilder out) {
+        out.append('(');
+        for (int i = 0; i < elements.length; i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            render(elements[i], out);
+        }
+        if (elements.length < len) {
+            out.append(", ");
+            ParameterRenderers.appendTruncated(out, len - elements.length, "more");
+        }
+        out.append(')');
+    }
+
+    private void renderArray(Object array, StringBuilder out) {
+        int len = Array.getLength(array);
+        int end = Math.min(len, ParameterRenderers.DEFAULT_ELEMENTS_MAX_LENGTH);
+        out.append('(');
+        for (int i = 0; i < end; i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            render(Array.get(array, i), out);
+        }
+        if (end < len) {
+            out.append(", ");
+            ParameterRenderers.appendTruncated(out, len - end, "more");
+        }
+        out.append(')');
+    }
+
+    private void renderCollection(Collection<?> collection, StringBuilder out) {
+        int len = collection.size();
+        int inx = 0;
+        out.append('(');
+        for (Object element : collection) {
+            if (inx == ParameterRenderers.DEFAULT_ELEMENTS_MAX_LENGTH) {
+                out.append(", ");
+                ParameterRenderers.appendTruncated(out, len - inx, "more");
+                break;
+            }
+            if (inx++ > 0) {
+                out.append(", ");
+            }
+            render(element, out);
+        }
+        out.append(')');
+    }
+
+    private ParameterRenderer<?> resolve(Class<?> type) {
+        ParameterRenderer<?> renderer = mostSpecific(customRenderers, type);
+        if (renderer == null) {
+            renderer = mostSpecific(builtInRenderers, type);
+        }
+        if (renderer == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("{} 没有对应的参数渲染器, 使用String.valueOf", type.getName());
+            }
+            renderer = ParameterRenderers.quoted(Object.class,
+                    (value, out, maxLength) -> ParameterRenderers.appendEscaped(out, String.valueOf(value), maxLength));
+        }
+        return renderer;
+    }
+
+    /**
+     * 能处理type的渲染器中类型最具体的一个, 同样具体时先注册的优先
+     */
+    private static ParameterRenderer<?> mostSpecific(List<ParameterRenderer<?>> renderers, Class<?> type) {
+        ParameterRenderer<?> best = null;
+        for (ParameterRenderer<?> renderer : renderers) {
+            Class<?> candidate = renderer.getType();
+            if (!candidate.isAssignableFrom(type)) {
+                continue;
+            }
+            if (best == null || (best.getType() != candidate && best.getType().isAssignableFrom(candidate))) {
+                best = renderer;
+            }
+        }
+        return best;
+    }
+
+}
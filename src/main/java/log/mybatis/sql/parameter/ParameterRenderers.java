@@ -0,0 +1,201 @@
+package log.mybatis.sql.parameter;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 内置的参数渲染器, DateTimeFormatter线程安全, 可以共享
+ */
+public final class ParameterRenderers {
+
+    public static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /**
+     * byte[]默认最多输出的字节数
+     */
+    public static final int DEFAULT_BYTES_MAX_LENGTH = 64;
+
+    /**
+     * 集合和数组默认最多输出的元素个数
+     */
+    public static final int DEFAULT_ELEMENTS_MAX_LENGTH = 100;
+
+    private ParameterRenderers() {
+    }
+
+    /**
+     * 内置渲染器
+     */
+    public static List<ParameterRenderer<?>> builtIn() {
+        List<ParameterRenderer<?>> renderers = new ArrayList<>();
+        renderers.add(of(Number.class, (value, out, maxLength) -> {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                out.append(value.longValue());
+            } else {
+                out.append(value);
+            }
+        }));
+        renderers.add(of(BigDecimal.class, (value, out, maxLength) -> out.append(value.toPlainString())));
+        renderers.add(quoted(Boolean.class, (value, out, maxLength) -> out.append(value.booleanValue())));
+        renderers.add(new StringParameterRenderer(-1));
+        renderers.add(quoted(Character.class, (value, out, maxLength) -> appendEscaped(out, String.valueOf(value), maxLength)));
+        renderers.add(quoted(Enum.class, (value, out, maxLength) -> out.append(value.name())));
+        renderers.add(quoted(UUID.class, (value, out, maxLength) -> out.append(value)));
+        renderers.add(quoted(Date.class, (value, out, maxLength) ->
+                DATE_TIME.formatTo(LocalDateTime.ofInstant(value.toInstant(), ZoneId.systemDefault()), out)));
+        renderers.add(quoted(java.sql.Date.class, (value, out, maxLength) -> DATE.formatTo(value.toLocalDate(), out)));
+        renderers.add(quoted(java.sql.Time.class, (value, out, maxLength) -> TIME.formatTo(value.toLocalTime(), out)));
+        renderers.add(quoted(java.sql.Timestamp.class, (value, out, maxLength) -> DATE_TIME.formatTo(value.toLocalDateTime(), out)));
+        renderers.add(quoted(LocalDateTime.class, (value, out, maxLength) -> DATE_TIME.formatTo(value, out)));
+        renderers.add(quoted(LocalDate.class, (value, out, maxLength) -> DATE.formatTo(value, out)));
+        renderers.add(quoted(LocalTime.class, (value, out, maxLength) -> TIME.formatTo(value, out)));
+        renderers.add(quoted(Instant.class, (value, out, maxLength) ->
+                DATE_TIME.formatTo(LocalDateTime.ofInstant(value, ZoneId.systemDefault()), out)));
+        renderers.add(quoted(OffsetDateTime.class, (value, out, maxLength) -> DateTimeFormatter.ISO_OFFSET_DATE_TIME.formatTo(value, out)));
+        renderers.add(quoted(ZonedDateTime.class, (value, out, maxLength) -> DateTimeFormatter.ISO_OFFSET_DATE_TIME.formatTo(value, out)));
+        renderers.add(new BytesParameterRenderer(DEFAULT_BYTES_MAX_LENGTH));
+        return renderers;
+    }
+
+    /**
+     * 不加引号的渲染器
+     */
+    public static <T> ParameterRenderer<T> of(Class<T> type, Writer<? super T> writer) {
+        return new ParameterRenderer<T>() {
+            @Override
+            public Class<T> getType() {
+                return type;
+            }
+
+            @Override
+            public void render(T value, StringBuilder out, int maxLength) {
+                writer.write(value, out, maxLength);
+            }
+        };
+    }
+
+    /**
+     * 两边加单引号的渲染器
+     */
+    public static <T> ParameterRenderer<T> quoted(Class<T> type, Writer<? super T> writer) {
+        return of(type, (value, out, maxLength) -> {
+            out.append('\'');
+            writer.write(value, out, maxLength);
+            out.append('\'');
+        });
+    }
+
+    /**
+     * 写参数值
+     */
+    @FunctionalInterface
+    public interface Writer<T> {
+
+        /**
+         * 同ParameterRenderer.render
+         */
+        void write(T value, StringBuilder out, int maxLength);
+    }
+
+    /**
+     * 追加字符串, 单引号转义成两个, 超过maxLength截断并标出原长度
+     */
+    public static void appendEscaped(StringBuilder out, CharSequence value, int maxLength) {
+        int len = value.length();
+        int end = maxLength > 0 && len > maxLength ? maxLength : len;
+        for (int i = 0; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == '\'') {
+                out.append('\'');
+            }
+            out.append(c);
+        }
+        if (end < len) {
+            appendTruncated(out, len - end, "chars");
+        }
+    }
+
+    /**
+     * 截断标记
+     */
+    public static void appendTruncated(StringBuilder out, long more, String unit) {
+        out.append("...(+").append(more).append(' ').append(unit).append(')');
+    }
+
+    /**
+     * 字符串
+     */
+    public static class StringParameterRenderer implements ParameterRenderer<CharSequence> {
+
+        private final int maxLength;
+
+        public StringParameterRenderer(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public Class<CharSequence> getType() {
+            return CharSequence.class;
+        }
+
+        @Override
+        public void render(CharSequence value, StringBuilder out, int maxLength) {
+            out.append('\'');
+            appendEscaped(out, value, maxLength);
+            out.append('\'');
+        }
+
+        @Override
+        public int getMaxLength() {
+            return maxLength;
+        }
+    }
+
+    /**
+     * 二进制, 输出十六进制字面量, 默认只输出前64个字节
+     */
+    public static class BytesParameterRenderer implements ParameterRenderer<byte[]> {
+
+        private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+        private final int maxLength;
+
+        public BytesParameterRenderer(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public Class<byte[]> getType() {
+            return byte[].class;
+        }
+
+        @Override
+        public void render(byte[] value, StringBuilder out, int maxLength) {
+            int end = maxLength > 0 && value.length > maxLength ? maxLength : value.length;
+            out.append("X'");
+            for (int i = 0; i < end; i++) {
+                out.append(HEX[(value[i] >> 4) & 0xF]).append(HEX[value[i] & 0xF]);
+            }
+            out.append('\'');
+            if (end < value.length) {
+                out.append("/*");
+                appendTruncated(out, value.length - end, "bytes");
+                out.append("*/");
+            }
+        }
+
+        @Override
+        public int getMaxLength() {
+            return maxLength;
+        }
+    }
+
+}
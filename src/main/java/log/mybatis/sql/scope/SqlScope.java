@@ -0,0 +1,262 @@
+package log.mybatis.sql.scope;
+
+import log.mybatis.sql.PlaceholderReplacer;
+import log.mybatis.sql.StatementMeta;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 一次请求或一个事务内执行的sql汇总, 结束时打印一行, 按sql指纹列出重复执行的sql用来发现N+1
+ * 每个线程一个对象反复使用, 执行时按sql原文累计到开放寻址的数组, 不分配对象也不算指纹
+ * 结束时每种sql原文算一次指纹再合并, 比如IN列表长度不同的同一个查询算一种
+ */
+@Slf4j
+public final class SqlScope {
+
+    private static final ThreadLocal<SqlScope> CURRENT = new ThreadLocal<>();
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * 超过这个容量的数组在结束时丢掉, 不让偶尔的大请求一直占着内存
+     */
+    private static final int RETAIN_CAPACITY = 256;
+
+    /**
+     * 汇总里最多列出几个重复的statement
+     */
+    private static final int MAX_REPEATED = 5;
+
+    /**
+     * 嵌套深度, 请求里的事务不再单独汇总
+     */
+    private int depth;
+
+    private String name;
+
+    private long startNanos;
+
+    private int statementCount;
+
+    private long dbNanos;
+
+    /**
+     * sql原文, 静态sql每次是同一个String, 比较时先比引用
+     */
+    private String[] keys = new String[INITIAL_CAPACITY];
+
+    /**
+     * 第一次执行这条sql的statement, 汇总里显示用
+     */
+    private StatementMeta[] metas = new StatementMeta[INITIAL_CAPACITY];
+
+    private int[] counts = new int[INITIAL_CAPACITY];
+
+    private long[] nanos = new long[INITIAL_CAPACITY];
+
+    private int size;
+
+    private SqlScope() {
+    }
+
+    /**
+     * 开始汇总, 已经在汇总中时只增加嵌套深度
+     * @param name 请求路径或事务名
+     * @return 是否新开了一个汇总
+     */
+    public static boolean begin(String name) {
+        SqlScope scope = CURRENT.get();
+        if (scope == null) {
+            scope = new SqlScope();
+            CURRENT.set(scope);
+        }
+        if (scope.depth++ > 0) {
+            return false;
+        }
+        scope.name = name;
+        scope.startNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * 结束汇总, 最外层结束时打印汇总并清空
+     * @param repeatThreshold 同一个statement执行多少次算重复
+     */
+    public static void end(int repeatThreshold) {
+        SqlScope scope = CURRENT.get();
+        if (scope == null || scope.depth == 0) {
+            return;
+        }
+        if (--scope.depth > 0) {
+            return;
+        }
+        try {
+            if (scope.statementCount > 0 && log.isInfoEnabled()) {
+                log.info(scope.summary(repeatThreshold));
+            }
+        } finally {
+            scope.reset();
+        }
+    }
+
+    /**
+     * 当前线程是否在汇总中
+     */
+    public static boolean isActive() {
+        SqlScope scope = CURRENT.get();
+        return scope != null && scope.depth > 0;
+    }
+
+    /**
+     * 记录一次执行, 不在汇总中时什么都不做
+     * @param sql 带?的sql原文
+     */
+    public static void record(StatementMeta statementMeta, String sql, long nanos) {
+        SqlScope scope = CURRENT.get();
+        if (scope != null && scope.depth > 0) {
+            scope.add(statementMeta, sql, nanos);
+        }
+    }
+
+    private void add(StatementMeta statementMeta, String sql, long elapsed) {
+        statementCount++;
+        dbNanos += elapsed;
+        if (size * 2 >= keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int inx = sql.hashCode() & mask;
+        while (keys[inx] != null && keys[inx] != sql && !keys[inx].equals(sql)) {
+            inx = (inx + 1) & mask;
+        }
+        if (keys[inx] == null) {
+            keys[inx] = sql;
+            metas[inx] = statementMeta;
+            size++;
+        }
+        counts[inx]++;
+        nanos[inx] += elapsed;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        StatementMeta[] oldMetas = metas;
+        int[] oldCounts = counts;
+        long[] oldNanos = nanos;
+        keys = new String[oldKeys.length * 2];
+        metas = new StatementMeta[keys.length];
+        counts = new int[keys.length];
+        nanos = new long[keys.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int inx = oldKeys[i].hashCode() & mask;
+            while (keys[inx] != null) {
+                inx = (inx + 1) & mask;
+            }
+            keys[inx] = oldKeys[i];
+            metas[inx] = oldMetas[i];
+            counts[inx] = oldCounts[i];
+            nanos[inx] = oldNanos[i];
+        }
+    }
+
+    /**
+     * 例: sql scope GET /users: statements:120, db:340ms, elapsed:400ms, repeated: UserMapper.get x100 (300ms)
+     */
+    private String summary(int repeatThreshold) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("sql scope ").append(name)
+                .append(": statements:").append(statementCount)
+                .append(", db:").append(TimeUnit.NANOSECONDS.toMillis(dbNanos)).append("ms")
+                .append(", elapsed:").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)).append("ms");
+        Repeated[] repeated = byFingerprint();
+        // 每次挑出剩下次数最多的, 列出的个数很少, 不需要排序
+        int last = Integer.MAX_VALUE;
+        int lastInx = -1;
+        for (int n = 0; n < MAX_REPEATED; n++) {
+            int best = -1;
+            for (int i = 0; i < repeated.length; i++) {
+                int count = repeated[i].count;
+                if (count < repeatThreshold || count > last || (count == last && i <= lastInx)) {
+                    continue;
+                }
+                if (best < 0 || count > repeated[best].count) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            sb.append(n == 0 ? ", repeated: " : ", ").append(shortName(repeated[best].statementMeta.getId()))
+                    .append(" x").append(repeated[best].count)
+                    .append(" (").append(TimeUnit.NANOSECONDS.toMillis(repeated[best].nanos)).append("ms)");
+            last = repeated[best].count;
+            lastInx = best;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按指纹合并, 每种sql原文算一次指纹
+     */
+    private Repeated[] byFingerprint() {
+        Map<String, Repeated> merged = new HashMap<>(size * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                continue;
+            }
+            Repeated repeated = merged.computeIfAbsent(PlaceholderReplacer.fingerprint(keys[i]), fingerprint -> new Repeated());
+            if (repeated.statementMeta == null) {
+                repeated.statementMeta = metas[i];
+            }
+            repeated.count += counts[i];
+            repeated.nanos += nanos[i];
+        }
+        return merged.values().toArray(new Repeated[0]);
+    }
+
+    private static final class Repeated {
+
+        StatementMeta statementMeta;
+
+        int count;
+
+        long nanos;
+    }
+
+    /**
+     * 只保留mapper类名和方法名
+     */
+    private static String shortName(String id) {
+        int methodDot = id.lastIndexOf('.');
+        return methodDot <= 0 ? id : id.substring(id.lastIndexOf('.', methodDot - 1) + 1);
+    }
+
+    private void reset() {
+        name = null;
+        statementCount = 0;
+        dbNanos = 0;
+        size = 0;
+        if (keys.length > RETAIN_CAPACITY) {
+            keys = new String[INITIAL_CAPACITY];
+            metas = new StatementMeta[INITIAL_CAPACITY];
+            counts = new int[INITIAL_CAPACITY];
+            nanos = new long[INITIAL_CAPACITY];
+            return;
+        }
+        Arrays.fill(keys, null);
+        Arrays.fill(metas, null);
+        Arrays.fill(counts, 0);
+        Arrays.fill(nanos, 0);
+    }
+
+}
@@ -0,0 +1,40 @@
+package log.mybatis.sql.scope;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 按http请求汇总sql, 请求结束时打印一行
+ */
+public class SqlScopeHandlerInterceptor implements AsyncHandlerInterceptor {
+
+    private final int repeatThreshold;
+
+    public SqlScopeHandlerInterceptor(int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlScope.begin(request.getMethod() + " " + request.getRequestURI());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlScope.end(repeatThreshold);
+    }
+
+    /**
+     * 异步请求在原线程上先结束, 异步分派时preHandle会重新开始
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlScope.end(repeatThreshold);
+    }
+
+}
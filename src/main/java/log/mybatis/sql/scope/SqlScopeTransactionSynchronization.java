@@ -0,0 +1,36 @@
+package log.mybatis.sql.scope;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 按spring事务汇总sql, 事务里第一条sql执行时注册, 事务完成时打印一行
+ */
+public class SqlScopeTransactionSynchronization extends TransactionSynchronizationAdapter {
+
+    private final int repeatThreshold;
+
+    private SqlScopeTransactionSynchronization(int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    /**
+     * 当前线程有事务且没有在汇总时开始按事务汇总
+     */
+    public static void beginIfNecessary(int repeatThreshold) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || SqlScope.isActive()) {
+            return;
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        SqlScope.begin("tx " + (name == null ? "" : name));
+        TransactionSynchronizationManager.registerSynchronization(new SqlScopeTransactionSynchronization(repeatThreshold));
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        SqlScope.end(repeatThreshold);
+    }
+
+}
@@ -0,0 +1,51 @@
+package log;
+
+import log.mybatis.sql.DefaultSqlPrinter;
+import log.mybatis.sql.EnableSqlPrint;
+import log.mybatis.sql.SqlPrintInterceptor;
+import log.mybatis.sql.SqlPrinter;
+import log.mybatis.sql.metrics.MicrometerSqlMetrics;
+import log.mybatis.sql.metrics.SqlMetrics;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.support.SpringFactoriesLoader;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ */
+public class LogAutoConfigTest {
+
+    /**
+     * 和spring boot一样在用户配置之后处理, 这时SqlPrintInterceptor已经注册了
+     */
+    @Configuration
+    @EnableSqlPrint
+    @ImportAutoConfiguration(LogAutoConfig.class)
+    static class App {
+    }
+
+    @Test
+    public void registeredAsAutoConfiguration() {
+        assertTrue(SpringFactoriesLoader.loadFactoryNames(EnableAutoConfiguration.class,
+                getClass().getClassLoader()).contains(LogAutoConfig.class.getName()));
+    }
+
+    @Test
+    public void nestedConfigsAreProcessed() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(App.class)) {
+            SqlPrintInterceptor interceptor = context.getBean(SqlPrintInterceptor.class);
+            assertTrue(context.getBean(SqlPrinter.class) instanceof DefaultSqlPrinter);
+            SqlMetrics sqlMetrics = context.getBean(SqlMetrics.class);
+            assertTrue(sqlMetrics instanceof MicrometerSqlMetrics);
+            assertSame(sqlMetrics, interceptor.getSqlMetrics());
+        }
+    }
+
+}
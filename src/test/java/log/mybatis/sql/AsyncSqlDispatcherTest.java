@@ -0,0 +1,79 @@
+package log.mybatis.sql;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ */
+public class AsyncSqlDispatcherTest {
+
+    private AsyncSqlDispatcher dispatcher;
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void workerSurvivesError() throws InterruptedException {
+        CountDownLatch printed = new CountDownLatch(1);
+        dispatcher = new AsyncSqlDispatcher(new TestPrinter() {
+            @Override
+            public void render(SqlEvent event) {
+                if (event.getTotal() == 1) {
+                    throw new StackOverflowError();
+                }
+                printed.countDown();
+            }
+        }, 4, OverflowPolicy.BLOCK, 1);
+
+        assertTrue(dispatcher.offer(event(1)));
+        assertTrue(dispatcher.offer(event(2)));
+        assertTrue(printed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    /**
+     * 后台线程退出后BLOCK策略不能一直等
+     */
+    @Test
+    public void blockDropsAfterWorkerExit() {
+        dispatcher = new AsyncSqlDispatcher(new TestPrinter(), 1, OverflowPolicy.BLOCK, 1);
+        dispatcher.shutdown();
+
+        assertTrue(dispatcher.offer(event(1)));
+        assertFalse(dispatcher.offer(event(2)));
+        assertEquals(1, dispatcher.getDroppedCount());
+    }
+
+    private static SqlEvent event(int total) {
+        return new SqlEvent(null, total, 1, true, "select 1", null, null);
+    }
+
+    private static class TestPrinter extends AbstractSqlPrinter {
+
+        @Override
+        public void render(SqlEvent event) {
+        }
+
+        @Override
+        public void notLogSql(String fullMapperMethod, int total, long executionTime) {
+        }
+
+        @Override
+        public void logSql(String fullMapperMethod, int total, long executionTime, CharSequence sql) {
+        }
+    }
+
+}
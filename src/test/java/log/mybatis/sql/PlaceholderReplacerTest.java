@@ -0,0 +1,116 @@
+package log.mybatis.sql;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ */
+public class PlaceholderReplacerTest {
+
+    @Test
+    public void fingerprintReplacesLiterals() {
+        assertEquals("select * from t1 where col_2 = ? and name = ? and x = ?",
+                PlaceholderReplacer.fingerprint("select *  from t1\n where col_2 = 1.5e10 and name = 'a''b' and x = -- c\n ?"));
+    }
+
+    @Test
+    public void fingerprintCollapsesPlaceholderLists() {
+        assertEquals("select * from t where id in (?+)", PlaceholderReplacer.fingerprint("select * from t where id in (1, 2, 3)"));
+        assertEquals("select * from t where id in (?+)", PlaceholderReplacer.fingerprint("select * from t where id in ( ? , ? )"));
+        assertEquals("select count(?+) from t", PlaceholderReplacer.fingerprint("select count(?) from t"));
+        assertEquals("select ( ), ... from t", PlaceholderReplacer.fingerprint("select ( ) , ( ) from t"));
+    }
+
+    @Test
+    public void fingerprintCollapsesRepeatedGroups() {
+        assertEquals("insert into t(a,b) values (?+), ...",
+                PlaceholderReplacer.fingerprint("insert into t(a,b) values (1, 'a'),(2, 'b') ,(3,'c')"));
+        assertEquals("values (a, ?), ..., (b, ?)", PlaceholderReplacer.fingerprint("values (a, ?), (a, ?), (b, ?)"));
+        assertEquals("select (?+), ..., x, (?+), ... from t", PlaceholderReplacer.fingerprint("select (?), (?), x, (?), (?) from t"));
+        assertEquals("select * from t where x in ((?+), ...)", PlaceholderReplacer.fingerprint("select * from t where x in ((1,2),(3,4))"));
+    }
+
+    @Test
+    public void fingerprintKeepsGroupsWithNestedParentheses() {
+        assertEquals("insert into t(a,b) values (?, now()), (?, now())",
+                PlaceholderReplacer.fingerprint("insert into t(a,b) values (?, now()), (?, now())"));
+        assertEquals("select f(a, b), f(a, b) from t", PlaceholderReplacer.fingerprint("select f(a, b), f(a, b) from t"));
+    }
+
+    @Test
+    public void fingerprintIgnoresParenthesesInCommentsAndIdentifiers() {
+        assertEquals("select * from t where a in (?+) and c = \"x(\"",
+                PlaceholderReplacer.fingerprint("select * from t where a in (?,?) -- (\n and c = \"x(\" /* (1,2) */"));
+        assertEquals("select a) from t where b in (?+)", PlaceholderReplacer.fingerprint("select a) from t where b in (1,2)"));
+    }
+
+    @Test
+    public void fingerprintHugeInList() {
+        for (int n : new int[]{1000, 5000, 20000}) {
+            StringBuilder sql = new StringBuilder("select * from t where id in (");
+            for (int i = 0; i < n; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+            assertEquals("select * from t where id in (?+)", PlaceholderReplacer.fingerprint(sql.toString()));
+        }
+    }
+
+    @Test
+    public void fingerprintHugeMultiValuesInsert() {
+        for (int n : new int[]{1000, 5000, 20000}) {
+            StringBuilder sql = new StringBuilder("insert into t(a, b, c) values ");
+            for (int i = 0; i < n; i++) {
+                sql.append(i == 0 ? "" : ",\n  ").append("(?, ").append(i).append(", 'x')");
+            }
+            assertEquals("insert into t(a, b, c) values (?+), ...", PlaceholderReplacer.fingerprint(sql.toString()));
+        }
+    }
+
+    @Test
+    public void replaceKeepsQuotedPlaceholders() {
+        assertEquals("select '?', 'it''s ?', 'a\\'?', \"?\" from t where x = 1",
+                PlaceholderReplacer.replace("select '?', 'it''s ?', 'a\\'?', \"?\" from t where x = ?", Collections.singletonList("1")));
+    }
+
+    @Test
+    public void replaceKeepsPlaceholdersInComments() {
+        assertEquals("select a /* ? */ from t where a = 1 /* ? */ and b = 2",
+                PlaceholderReplacer.replace("select a /* ? */ from t where a = ? -- ?\n and b = ?", Arrays.asList("1", "2")));
+    }
+
+    @Test
+    public void lineCommentCannotCloseEarly() {
+        assertEquals("select a /* x * / b */ from t", PlaceholderReplacer.replace("select a -- x */ b\nfrom t", Collections.emptyList()));
+        assertEquals("select a /* x */ from t", PlaceholderReplacer.replace("select a /* x */ from t", Collections.emptyList()));
+    }
+
+    @Test
+    public void replaceKeepsMissingParameters() {
+        assertEquals("a = 1 and b = ? and c = ?", PlaceholderReplacer.replace("a = ? and b = ? and c = ?", Collections.singletonList("1")));
+        assertEquals("a = ?", PlaceholderReplacer.replace("a = ?", null));
+    }
+
+    @Test
+    public void replaceCollapsesWhitespaceOutsideQuotes() {
+        assertEquals("select a, b from t where c = ' x\n y '",
+                PlaceholderReplacer.replace("  select  a,\n\t b\r\n from t\n where c = ' x\n y '", Collections.emptyList()).trim());
+    }
+
+    @Test
+    public void compileMatchesReplace() {
+        String sql = "select a -- ?\n from t where a = ? and b = 'x?' and c in (?, ?)";
+        List<String> parameters = Arrays.asList("1", "'b'", "3");
+        SqlTemplate template = PlaceholderReplacer.compile(sql);
+        assertEquals(3, template.getPlaceholderCount());
+        assertEquals(PlaceholderReplacer.replace(sql, parameters), template.render(parameters));
+    }
+
+}
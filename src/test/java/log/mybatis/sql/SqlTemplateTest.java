@@ -0,0 +1,123 @@
+package log.mybatis.sql;
+
+import log.mybatis.sql.parameter.ParameterRendererRegistry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ */
+public class SqlTemplateTest {
+
+    private final ParameterRendererRegistry registry = new ParameterRendererRegistry();
+
+    @Test
+    public void collapseRepeatedValues() {
+        SqlTemplate template = PlaceholderReplacer.compile(insert(20));
+
+        assertEquals("insert into t(a, b) values (0, 0), (1, 1), (2, 2), (/* ...(+16 more) */ 19, 19)",
+                render(template, values(20), -1, true));
+        assertEquals(insert(20).replace("?", "0").length(), render(template, zeros(40), -1, false).length());
+    }
+
+    @Test
+    public void shortRunsAreNotCollapsed() {
+        int units = SqlTemplate.COLLAPSE_MIN_UNITS - 1;
+        SqlTemplate template = PlaceholderReplacer.compile(insert(units));
+
+        assertEquals(render(template, values(units), -1, false), render(template, values(units), -1, true));
+    }
+
+    @Test
+    public void collapseInList() {
+        StringBuilder sql = new StringBuilder("select * from t where id in (");
+        for (int i = 0; i < 100; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") and x = ?");
+        Object[] parameters = new Object[101];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = i;
+        }
+
+        assertEquals("select * from t where id in (0, 1, 2, /* ...(+96 more) */ 99) and x = 100",
+                render(PlaceholderReplacer.compile(sql.toString()), parameters, -1, true));
+    }
+
+    @Test
+    public void truncateAtMaxLength() {
+        String sql = insert(20);
+        SqlTemplate template = PlaceholderReplacer.compile(sql);
+        String rendered = render(template, values(20), 30, false);
+
+        assertEquals("insert into t(a, b) values (0,... /* truncated, original sql " + sql.length() + " chars, 40 parameters */",
+                rendered);
+    }
+
+    @Test
+    public void collapseMarkerRespectsMaxLength() {
+        SqlTemplate template = PlaceholderReplacer.compile(insert(20));
+        String prefix = "insert into t(a, b) values (0, 0), (1, 1), (2, 2), (";
+        String truncated = "... /* truncated, original sql " + insert(20).length() + " chars, 40 parameters */";
+
+        // 标记放不下时按截断处理, 不超出上限
+        assertEquals(prefix + truncated, render(template, values(20), prefix.length() + 5, true));
+        String marker = "/* ...(+16 more) */ ";
+        assertEquals(prefix + marker + truncated, render(template, values(20), prefix.length() + marker.length(), true));
+    }
+
+    @Test
+    public void truncateInsideParameter() {
+        SqlTemplate template = PlaceholderReplacer.compile("select * from t where name = ?");
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            name.append('x');
+        }
+        String rendered = render(template, new Object[]{name.toString()}, 50, false);
+
+        assertTrue(rendered, rendered.startsWith("select * from t where name = 'xxx"));
+        assertTrue(rendered, rendered.endsWith(" chars, 1 parameters */"));
+        assertTrue(rendered, rendered.length() < 200);
+    }
+
+    @Test
+    public void missingParametersKeepPlaceholder() {
+        SqlTemplate template = PlaceholderReplacer.compile("update t set a = ? where id = ?");
+
+        assertEquals("update t set a = 1 where id = ?", render(template, new Object[]{1}, -1, false));
+    }
+
+    private String render(SqlTemplate template, Object[] parameters, int maxLength, boolean collapse) {
+        StringBuilder out = new StringBuilder();
+        template.render(parameters, registry, out, maxLength, collapse);
+        return out.toString();
+    }
+
+    private static String insert(int units) {
+        StringBuilder sql = new StringBuilder("insert into t(a, b) values ");
+        for (int i = 0; i < units; i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        return sql.toString();
+    }
+
+    private static Object[] values(int units) {
+        Object[] values = new Object[units * 2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i / 2;
+        }
+        return values;
+    }
+
+    private static Object[] zeros(int count) {
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = 0;
+        }
+        return values;
+    }
+
+}
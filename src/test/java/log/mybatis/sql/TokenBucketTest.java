@@ -0,0 +1,82 @@
+package log.mybatis.sql;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void burstOfOneSecond() {
+        TokenBucket bucket = new TokenBucket(10);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void refillOverTime() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(10);
+        while (bucket.tryAcquire()) {
+            // 取空
+        }
+        Thread.sleep(250);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void concurrentAcquireNeverExceedsBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        // 一秒的突发加上这段时间补充的令牌
+        assertTrue(acquired.get() + " in " + elapsedMillis + "ms", acquired.get() <= 1000 + elapsedMillis + 1);
+        assertTrue(acquired.get() >= 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectNonPositiveRate() {
+        new TokenBucket(0);
+    }
+
+    @Test
+    public void permitsPerSecond() {
+        assertEquals(5, new TokenBucket(5).getPermitsPerSecond());
+    }
+
+}
@@ -0,0 +1,88 @@
+package log.mybatis.sql.alert;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ */
+public class SqlAlertDispatcherTest {
+
+    private final List<SqlAlert> alerts = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void dedupWithinWindow() {
+        SqlAlertDispatcher dispatcher = new SqlAlertDispatcher(alerts::addAll, 60000, 10);
+        for (int i = 0; i < 100; i++) {
+            dispatcher.report("demo.UserMapper.get", new SQLException("down\nagain"));
+        }
+        dispatcher.report("demo.UserMapper.insert", new SQLException("down"));
+        dispatcher.shutdown();
+
+        assertEquals(2, alerts.size());
+        assertEquals(2, dispatcher.getSentCount());
+        SqlAlert alert = alerts.get(0).getStatementId().equals("demo.UserMapper.get") ? alerts.get(0) : alerts.get(1);
+        assertEquals(100, alert.getCount());
+        assertEquals("java.sql.SQLException", alert.getExceptionType());
+        assertEquals("down again", alert.getMessage());
+    }
+
+    @Test
+    public void dropOverCapacity() {
+        SqlAlertDispatcher dispatcher = new SqlAlertDispatcher(alerts::addAll, 60000, 2);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.report("demo.UserMapper.m" + i, new SQLException());
+        }
+        dispatcher.report("demo.UserMapper.m0", new SQLException());
+        dispatcher.shutdown();
+
+        assertEquals(2, alerts.size());
+        assertEquals(3, dispatcher.getDroppedCount());
+    }
+
+    /**
+     * 窗口很短, 换窗口时新出现的错误种类不能丢也不能重复, 每个窗口的种类数不能串
+     */
+    @Test
+    public void newKindsSurviveWindowSwitch() throws InterruptedException {
+        int threads = 4;
+        int kinds = 20000;
+        SqlAlertDispatcher dispatcher = new SqlAlertDispatcher(alerts::addAll, 1, threads * kinds);
+        List<Thread> reporters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "demo.Mapper" + t + ".m";
+            Thread reporter = new Thread(() -> {
+                for (int i = 0; i < kinds; i++) {
+                    dispatcher.report(prefix + i, new SQLException());
+                }
+            });
+            reporters.add(reporter);
+            reporter.start();
+        }
+        for (Thread reporter : reporters) {
+            reporter.join();
+        }
+        dispatcher.shutdown();
+
+        Map<String, SqlAlert> sent = new ConcurrentHashMap<>();
+        for (SqlAlert alert : alerts) {
+            assertNull(alert.getStatementId(), sent.put(alert.getStatementId(), alert));
+            assertEquals(1, alert.getCount());
+        }
+        assertEquals(threads * kinds, sent.size());
+        assertEquals(0, dispatcher.getDroppedCount());
+        assertEquals(threads * kinds, dispatcher.getSentCount());
+    }
+
+}
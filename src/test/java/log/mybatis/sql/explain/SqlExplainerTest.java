@@ -0,0 +1,268 @@
+package log.mybatis.sql.explain;
+
+import log.mybatis.sql.SqlExplainEvent;
+import log.mybatis.sql.SqlLogPolicy;
+import log.mybatis.sql.SqlPrinter;
+import log.mybatis.sql.SqlStatistics;
+import log.mybatis.sql.StatementMeta;
+import log.mybatis.sql.StatementMetaIndex;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ * 用H2内存库测SqlExplainer
+ */
+public class SqlExplainerTest {
+
+    private static final String URL = "jdbc:h2:mem:explain;DB_CLOSE_DELAY=-1";
+
+    private static final String SELECT = "select id, name from t_user where id = ?";
+
+    private static final long CREATED = 1577808000123L;
+
+    private static Connection keepAlive;
+
+    private final List<SqlExplainEvent> events = new CopyOnWriteArrayList<>();
+
+    private final SqlPrinter printer = new SqlPrinter() {
+        @Override
+        public void print(Invocation invocation, StatementMeta statementMeta, long executionTime, Object result) {
+        }
+
+        @Override
+        public void printExplain(SqlExplainEvent event) {
+            events.add(event);
+        }
+    };
+
+    private GatedDataSource dataSource;
+
+    private StatementMeta statementMeta;
+
+    private SqlExplainer explainer;
+
+    enum Status {
+        ACTIVE, DISABLED
+    }
+
+    @BeforeClass
+    public static void createTable() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(URL);
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("create table t_user (id int primary key, name varchar(32), status varchar(16), created timestamp)");
+        }
+        try (PreparedStatement statement = keepAlive.prepareStatement("insert into t_user values (?, ?, ?, ?)")) {
+            statement.setInt(1, 1);
+            statement.setString(2, "a");
+            statement.setString(3, Status.ACTIVE.name());
+            statement.setTimestamp(4, new Timestamp(CREATED));
+            statement.executeUpdate();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        dataSource = new GatedDataSource();
+        dataSource.setURL(URL);
+        Configuration configuration = new Configuration();
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "demo.UserMapper.get",
+                new StaticSqlSource(configuration, SELECT), SqlCommandType.SELECT).build();
+        statementMeta = new StatementMetaIndex(SqlLogPolicy.DEFAULT, new SqlStatistics()).get(mappedStatement);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.open();
+        if (explainer != null) {
+            explainer.shutdown();
+        }
+    }
+
+    @Test
+    public void detectDialect() {
+        assertSame(ExplainDialect.STANDARD, ExplainDialect.detect("H2"));
+        assertSame(ExplainDialect.STANDARD, ExplainDialect.detect("MySQL"));
+        assertSame(ExplainDialect.STANDARD, ExplainDialect.detect("PostgreSQL"));
+        assertSame(ExplainDialect.SQLITE, ExplainDialect.detect("SQLite"));
+        assertSame(ExplainDialect.NONE, ExplainDialect.detect("Oracle"));
+        assertSame(ExplainDialect.NONE, ExplainDialect.detect(null));
+    }
+
+    @Test
+    public void detectDialectFromConnection() throws InterruptedException {
+        explainer = new SqlExplainer(printer, null, 60);
+        explainer.submit(statementMeta, dataSource, SELECT, "fp", new Object[]{1}, 100);
+
+        String plan = awaitPlan("fp");
+        assertTrue(plan, plan.toUpperCase().contains("T_USER"));
+        assertEquals(1, explainer.getExplainedCount());
+        assertEquals(1, events.size());
+        assertEquals("demo.UserMapper.get", events.get(0).getFullMapperMethod());
+        assertEquals(plan, events.get(0).getPlan());
+        assertEquals(100, events.get(0).getExecutionTime());
+    }
+
+    @Test
+    public void configuredDialectWins() throws InterruptedException {
+        explainer = new SqlExplainer(printer, ExplainDialect.NONE, 60);
+        explainer.submit(statementMeta, dataSource, SELECT, "fp", new Object[]{1}, 100);
+
+        assertEquals("explain not supported", awaitPlan("fp"));
+    }
+
+    @Test
+    public void pendingThenPlan() throws InterruptedException {
+        explainer = new SqlExplainer(printer, null, 60);
+        dataSource.close();
+        assertTrue(explainer.needExplain("fp"));
+        explainer.submit(statementMeta, dataSource, SELECT, "fp", new Object[]{1}, 100);
+
+        // 已提交还没拿到结果时不再需要explain, 但也拿不到计划
+        assertFalse(explainer.needExplain("fp"));
+        assertNull(explainer.getPlan("fp"));
+
+        dataSource.open();
+        assertNotNull(awaitPlan("fp"));
+        assertFalse(explainer.needExplain("fp"));
+    }
+
+    @Test
+    public void dedupByFingerprint() throws InterruptedException {
+        explainer = new SqlExplainer(printer, null, 60);
+        dataSource.close();
+        for (int i = 0; i < 3; i++) {
+            explainer.submit(statementMeta, dataSource, SELECT, "fp", new Object[]{i}, 100);
+        }
+        explainer.submit(statementMeta, dataSource, SELECT + " and name = ?", "other", new Object[]{1, "a"}, 100);
+        dataSource.open();
+
+        awaitPlan("fp");
+        awaitPlan("other");
+        assertEquals(2, explainer.getExplainedCount());
+        assertEquals(2, events.size());
+        assertEquals(0, explainer.getRejectedCount());
+    }
+
+    @Test
+    public void expireAfterTtl() throws InterruptedException {
+        explainer = new SqlExplainer(printer, null, 1);
+        explainer.submit(statementMeta, dataSource, SELECT, "fp", new Object[]{1}, 100);
+        awaitPlan("fp");
+        assertFalse(explainer.needExplain("fp"));
+
+        Thread.sleep(1100);
+        assertTrue(explainer.needExplain("fp"));
+        assertNull(explainer.getPlan("fp"));
+
+        explainer.submit(statementMeta, dataSource, SELECT, "fp", new Object[]{1}, 100);
+        awaitPlan("fp");
+        assertEquals(2, explainer.getExplainedCount());
+    }
+
+    @Test
+    public void notSupportedForUpdate() throws InterruptedException {
+        explainer = new SqlExplainer(printer, null, 60);
+        explainer.submit(statementMeta, dataSource, "update t_user set name = ? where id = ?", "fp",
+                new Object[]{"b", 1}, 100);
+
+        assertEquals("explain not supported", awaitPlan("fp"));
+        assertEquals(0, explainer.getExplainedCount());
+        assertTrue(events.isEmpty());
+        assertFalse(explainer.needExplain("fp"));
+    }
+
+    @Test
+    public void failureIsCached() throws InterruptedException {
+        explainer = new SqlExplainer(printer, null, 60);
+        explainer.submit(statementMeta, dataSource, "select * from t_missing where id = ?", "fp", new Object[]{1}, 100);
+
+        assertTrue(awaitPlan("fp").startsWith("explain failed"));
+        assertFalse(explainer.needExplain("fp"));
+        assertEquals(0, explainer.getExplainedCount());
+    }
+
+    /**
+     * 枚举按name绑定, java.util.Date转成Timestamp, 用查询行数的方言让参数真正参与比较
+     */
+    @Test
+    public void bindJdbcValues() throws InterruptedException {
+        ExplainDialect count = sql -> "select count(*) from (" + sql + ")";
+        explainer = new SqlExplainer(printer, count, 60);
+        String sql = "select id from t_user where status = ? and created = ?";
+        explainer.submit(statementMeta, dataSource, sql, "match", new Object[]{Status.ACTIVE, new Date(CREATED)}, 100);
+        explainer.submit(statementMeta, dataSource, sql, "miss", new Object[]{Status.DISABLED, new Date(CREATED)}, 100);
+
+        assertEquals("1", awaitPlan("match"));
+        assertEquals("0", awaitPlan("miss"));
+    }
+
+    private String awaitPlan(String fingerprint) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            String plan = explainer.getPlan(fingerprint);
+            if (plan != null) {
+                return plan;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("no plan for " + fingerprint);
+    }
+
+    /**
+     * 关闭时获取连接会阻塞, 用来让explain停在已提交的状态
+     */
+    private static class GatedDataSource extends JdbcDataSource {
+
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        void close() {
+            gate = new CountDownLatch(1);
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(e);
+            }
+            return super.getConnection();
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+package log.mybatis.sql.journal;
+
+import log.mybatis.sql.parameter.ParameterRendererRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static log.mybatis.sql.journal.JournalFormat.FILE_HEADER_SIZE;
+import static log.mybatis.sql.journal.JournalFormat.TYPE_EVENT;
+import static log.mybatis.sql.journal.JournalFormat.TYPE_UNCOMMITTED;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ */
+public class SqlJournalTest {
+
+    private static final String INSERT = "insert into t_user(id, name, score, active, created, data, status) values (?, ?, ?, ?, ?, ?, ?)";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ParameterRendererRegistry registry = new ParameterRendererRegistry();
+
+    enum Status {
+        ACTIVE
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Timestamp created = new Timestamp(1577808000123L);
+        try (SqlJournal journal = new SqlJournal(dir, "sql", 64 * 1024, 0)) {
+            journal.append("demo.UserMapper.insert", INSERT,
+                    new Object[]{1, "it's", new BigDecimal("1.50"), true, created, new byte[]{1, 2}, Status.ACTIVE}, 12, 1, 0, registry);
+            journal.append("demo.UserMapper.get", null, null, 3, 2, 0, registry);
+            journal.append("demo.UserMapper.insert", INSERT, new Object[]{2L, null, 2.5d, false, null, null, null}, 5, 10, 10, registry);
+            assertEquals(3, journal.getWrittenCount());
+        }
+
+        List<SqlJournalEntry> entries = readAll(dir);
+        assertEquals(3, entries.size());
+
+        SqlJournalEntry first = entries.get(0);
+        assertEquals("demo.UserMapper.insert", first.getStatementId());
+        assertEquals(INSERT, first.getSql());
+        assertEquals(12, first.getExecutionTime());
+        assertEquals(1, first.getRows());
+        assertEquals(0, first.getBatchSize());
+        Object[] values = first.getParameterValues();
+        assertEquals(1L, values[0]);
+        assertEquals("it's", values[1]);
+        assertEquals(new BigDecimal("1.50"), values[2]);
+        assertEquals(true, values[3]);
+        assertEquals(created, values[4]);
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) values[5]);
+        assertTrue(first.getTimestamp() > 0);
+
+        SqlJournalEntry second = entries.get(1);
+        assertEquals("demo.UserMapper.get", second.getStatementId());
+        assertNull(second.getSql());
+        assertEquals(0, second.getParameterValues().length);
+
+        SqlJournalEntry third = entries.get(2);
+        assertEquals(INSERT, third.getSql());
+        assertEquals(10, third.getBatchSize());
+        assertEquals(2.5d, third.getParameterValues()[2]);
+
+        String line = new SqlJournalReader().format(first);
+        // 时间按本地时区输出, 只比较前后
+        assertTrue(line, line.contains(" insert,total:1,12ms insert into t_user(id, name, score, active, created, data, status)"
+                + " values (1, 'it''s', 1.50, 'true', '"));
+        assertTrue(line, line.endsWith("', X'0102', 'ACTIVE')"));
+    }
+
+    @Test
+    public void rollAndDeleteOldSegments() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        int count = 2000;
+        try (SqlJournal journal = new SqlJournal(dir, "sql", 8 * 1024, 3)) {
+            for (int i = 0; i < count; i++) {
+                journal.append("demo.UserMapper.get", "select * from t_user where id = ?", new Object[]{i}, 1, 1, 0, registry);
+            }
+            assertEquals(count, journal.getWrittenCount());
+            assertEquals(0, journal.getDroppedCount());
+        }
+
+        List<Path> segments = SqlJournal.segments(dir, "sql");
+        assertEquals(3, segments.size());
+        List<SqlJournalEntry> entries = readAll(dir);
+        assertTrue(entries.size() < count);
+        // 留下的是最新的几个文件, 每个文件都有自己的字典
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals("select * from t_user where id = ?", entries.get(i).getSql());
+            assertEquals((long) (count - entries.size() + i), entries.get(i).getParameterValues()[0]);
+        }
+    }
+
+    @Test
+    public void tooLargeIsDropped() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (SqlJournal journal = new SqlJournal(dir, "sql", 1024, 0)) {
+            journal.append("demo.UserMapper.insert", "insert into t values (?)", new Object[]{new byte[2048]}, 1, 1, 0, registry);
+            journal.append("demo.UserMapper.insert", "insert into t values (?)", new Object[]{new byte[16]}, 1, 1, 0, registry);
+            assertEquals(1, journal.getDroppedCount());
+            assertEquals(1, journal.getWrittenCount());
+        }
+        assertEquals(1, readAll(dir).size());
+    }
+
+    @Test
+    public void concurrentAppend() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        int threads = 4;
+        int perThread = 5000;
+        try (SqlJournal journal = new SqlJournal(dir, "sql", 256 * 1024, 0)) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String id = "demo.UserMapper.get" + t;
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(id, "select * from t_user where id = ?", new Object[]{i}, 1, 1, 0, registry);
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(threads * perThread, journal.getWrittenCount());
+        }
+
+        Set<String> seen = new HashSet<>();
+        for (SqlJournalEntry entry : readAll(dir)) {
+            assertTrue(seen.add(entry.getStatementId() + ":" + entry.getParameterValues()[0]));
+        }
+        assertEquals(threads * perThread, seen.size());
+    }
+
+    /**
+     * 预留了但没写完的记录长度已经写好, 读取时跳过它, 不影响后面的记录
+     */
+    @Test
+    public void skipUncommittedRecord() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (SqlJournal journal = new SqlJournal(dir, "sql", 64 * 1024, 0)) {
+            for (int i = 0; i < 3; i++) {
+                journal.append("demo.UserMapper.get", "select * from t_user where id = ?", new Object[]{i}, 1, 1, 0, registry);
+            }
+        }
+        Path file = SqlJournal.segments(dir, "sql").get(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int events = 0;
+            for (int pos = FILE_HEADER_SIZE; buffer.getInt(pos) != 0; pos += buffer.getInt(pos)) {
+                if (buffer.get(pos + 4) == TYPE_EVENT && events++ == 1) {
+                    buffer.put(pos + 4, TYPE_UNCOMMITTED);
+                }
+            }
+        }
+
+        List<SqlJournalEntry> entries = readAll(dir);
+        assertEquals(2, entries.size());
+        assertEquals(0L, entries.get(0).getParameterValues()[0]);
+        assertEquals(2L, entries.get(1).getParameterValues()[0]);
+    }
+
+    @Test
+    public void writesAfterCloseAreDropped() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        SqlJournal journal = new SqlJournal(dir, "sql", 64 * 1024, 0);
+        journal.close();
+        journal.append("demo.UserMapper.get", "select 1", null, 1, 1, 0, registry);
+        assertEquals(1, journal.getDroppedCount());
+        assertEquals(Collections.emptyList(), readAll(dir));
+    }
+
+    private static List<SqlJournalEntry> readAll(Path dir) throws IOException {
+        SqlJournalReader reader = new SqlJournalReader();
+        List<SqlJournalEntry> entries = new ArrayList<>();
+        for (Path file : SqlJournal.segments(dir, null)) {
+            reader.read(file, entry -> true, entries::add);
+        }
+        return entries;
+    }
+
+}
@@ -0,0 +1,89 @@
+package log.mybatis.sql.json;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @date 2026/10/17
+ */
+public class JsonWriterTest {
+
+    @Test
+    public void escapeString() {
+        assertEquals("\"quote\\\" back\\\\slash\"", write("quote\" back\\slash"));
+        assertEquals("\"\\n\\r\\t\\b\\f\\u0001\\u001f\"", write("\n\r\t\b\f\u0001\u001f"));
+        assertEquals("\"a\\u2028b\\u2029c\"", write("a\u2028b\u2029c"));
+    }
+
+    @Test
+    public void encodeUtf8() {
+        assertEquals("\"é中文😀\"", write("é中文\ud83d\ude00"));
+    }
+
+    @Test
+    public void escapeLoneSurrogates() {
+        assertEquals("\"\\ud83d x \\ude00\"", write("\ud83d x \ude00"));
+        assertEquals("\"\\ud83d\"", write("\ud83d"));
+    }
+
+    @Test
+    public void writeSubstring() {
+        JsonWriter writer = JsonWriter.acquire();
+        try {
+            writer.value("abc\"def", 2, 5);
+            assertEquals("\"c\\\"d\"", text(writer));
+        } finally {
+            JsonWriter.release(writer);
+        }
+    }
+
+    @Test
+    public void writeObject() {
+        JsonWriter writer = JsonWriter.acquire();
+        try {
+            writer.beginObject()
+                    .key(JsonWriter.key("a")).value(1)
+                    .key(JsonWriter.key("b")).beginArray().value(true).nullValue().value(-12L).value(Long.MIN_VALUE).endArray()
+                    .key(JsonWriter.key("c")).value(1.5)
+                    .key(JsonWriter.key("d")).value(Double.NaN)
+                    .key(JsonWriter.key("e\"")).value("x")
+                    .endObject().newLine();
+            assertEquals("{\"a\":1,\"b\":[true,null,-12,-9223372036854775808],\"c\":1.5,\"d\":\"NaN\",\"e\\\"\":\"x\"}\n",
+                    text(writer));
+        } finally {
+            JsonWriter.release(writer);
+        }
+    }
+
+    @Test
+    public void growBuffer() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            value.append(i % 2 == 0 ? '中' : '\n');
+        }
+        String json = write(value);
+        assertEquals(2 + 50000 * 3 + 50000 * 2, json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static String write(CharSequence value) {
+        JsonWriter writer = JsonWriter.acquire();
+        try {
+            return text(writer.value(value));
+        } finally {
+            JsonWriter.release(writer);
+        }
+    }
+
+    private static String text(JsonWriter writer) {
+        ByteBuffer buffer = writer.buffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}